@@ -0,0 +1,54 @@
+package ncpl.bms.reports;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Runs the per-point table queries of report generation. The pool size is the number of
+     * connections report fetching may hold at once, across all concurrent exports.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService reportFetchExecutor(@Value("${report.fetch.pool-size:4}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("report-fetch-"));
+    }
+
+    /**
+     * Builds the schema catalog and table_info after startup, so the app serves requests meanwhile.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService catalogBootstrapExecutor() {
+        return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("catalog-bootstrap-"));
+    }
+
+    /**
+     * Generates the PDFs of the daily, weekly and monthly schedules, so reports of one cron run
+     * are produced in parallel instead of one after another on the scheduler thread.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService scheduledReportPool(@Value("${report.schedule.pool-size:4}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("scheduled-report-"));
+    }
+
+    /**
+     * Runs asynchronous PDF export jobs. At most queueDepth jobs wait for a worker; further
+     * submissions are rejected instead of queueing without bound.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor exportJobExecutor(@Value("${report.export.pool-size:2}") int poolSize,
+                                                @Value("${report.export.queue-depth:20}") int queueDepth) {
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), new CustomizableThreadFactory("export-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
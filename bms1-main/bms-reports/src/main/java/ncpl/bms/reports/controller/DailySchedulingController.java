@@ -20,6 +20,8 @@ import java.util.Map;
 @Slf4j
 public class DailySchedulingController {
 
+    @Autowired
+    private ReportScheduler reportScheduler;
 
     @Autowired
     private DailySchedulingService dailySchedulingService;
@@ -34,6 +36,11 @@ public class DailySchedulingController {
 
     @Scheduled(cron = "0 0 * * * ?") // This will run the job at the start of every hour
     public void runDailyReportGenerationTask() {
+        // Replaced by the minute-precision ReportScheduler unless report.schedule.engine=cron
+        // With several nodes on one database only the first to claim the hour runs the poll
+        if (reportScheduler.isEnabled() || !reportScheduler.claimHourlyPoll(ScheduleKind.DAILY)) {
+            return;
+        }
         log.info("started cron Job for daily scheduling  ");
         dailySchedulingService.generateDailyReports();
     }
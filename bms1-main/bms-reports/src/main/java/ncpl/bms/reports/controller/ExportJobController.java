@@ -0,0 +1,74 @@
+package ncpl.bms.reports.controller;
+
+import ncpl.bms.reports.service.ExportJob;
+import ncpl.bms.reports.service.ExportJobService;
+import ncpl.bms.reports.service.ReportDataService;
+import ncpl.bms.reports.util.DateConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("v1")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ExportJobController {
+
+    @Autowired
+    private ExportJobService exportJobService;
+
+    @Autowired
+    private ReportDataService reportDataService;
+
+    @Autowired
+    private DateConverter dateConverter;
+
+    // Same parameters as exportReport, but answers 202 with the job at once; 503 when the export queue is full
+    @PostMapping("export-jobs")
+    public ResponseEntity<ExportJob> submit(@RequestParam Long id,
+                                            @RequestParam String fromDate,
+                                            @RequestParam String toDate,
+                                            @RequestParam("username") String username,
+                                            @RequestParam String assignedTo,
+                                            @RequestParam(required = false) String assigned_approver,
+                                            @RequestParam(required = false) String engine,
+                                            @RequestParam(required = false) String interval,
+                                            @RequestParam(required = false) String downsample) throws Exception {
+        if ("null".equals(assigned_approver)) {
+            assigned_approver = null;
+        }
+        try {
+            ExportJob job = exportJobService.submit(id,
+                    dateConverter.stringToLong(fromDate).toString(), dateConverter.stringToLong(toDate).toString(),
+                    username, assignedTo, assigned_approver, reportDataService.resolveMode(engine),
+                    reportDataService.resolveInterval(interval), reportDataService.resolveDownsampleMode(downsample));
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "v1/export-jobs/" + job.getId())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+    }
+
+    @GetMapping("export-jobs")
+    public List<ExportJob> list() {
+        return exportJobService.list();
+    }
+
+    // Status, percent done and, once DONE, the stored report id and link
+    @GetMapping("export-jobs/{jobId}")
+    public ResponseEntity<ExportJob> get(@PathVariable String jobId) {
+        ExportJob job = exportJobService.get(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    @DeleteMapping("export-jobs/{jobId}")
+    public ResponseEntity<ExportJob> cancel(@PathVariable String jobId) {
+        ExportJob job = exportJobService.cancel(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+}
@@ -19,6 +19,10 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:4200")
 @Slf4j
 public class MonthlySchedulingController {
+
+    @Autowired
+    private ReportScheduler reportScheduler;
+
     @Autowired
     private MonthlySchedulingService monthlySchedulingService;
 
@@ -32,6 +36,11 @@ public class MonthlySchedulingController {
 
     @Scheduled(cron = "0 0 * * * ?")
     public void runMonthlyReportGenerationTask() {
+        // Replaced by the minute-precision ReportScheduler unless report.schedule.engine=cron
+        // With several nodes on one database only the first to claim the hour runs the poll
+        if (reportScheduler.isEnabled() || !reportScheduler.claimHourlyPoll(ScheduleKind.MONTHLY)) {
+            return;
+        }
         //log.info("Started cron job for monthly report generation");
         monthlySchedulingService.generateMonthlyReports();
     }
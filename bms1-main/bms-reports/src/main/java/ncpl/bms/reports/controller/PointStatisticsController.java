@@ -0,0 +1,34 @@
+package ncpl.bms.reports.controller;
+
+import ncpl.bms.reports.service.PointStatistics;
+import ncpl.bms.reports.service.PointStatisticsService;
+import ncpl.bms.reports.service.ReportTemplateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Objects;
+
+@RestController
+@RequestMapping("v1")
+@CrossOrigin(origins = "http://localhost:4200")
+public class PointStatisticsController {
+
+    @Autowired
+    private PointStatisticsService pointStatisticsService;
+
+    @Autowired
+    private ReportTemplateService templateService;
+
+    // Catalogued statistics of every point, or of one template's points so the UI can flag sparse ones before export
+    @GetMapping("points/statistics")
+    public List<PointStatistics> getPointStatistics(@RequestParam(required = false) Long templateId) {
+        if (templateId == null) {
+            return pointStatisticsService.getAll();
+        }
+        return templateService.getDescriptor(templateId).getBaseColumns().stream()
+                .map(pointStatisticsService::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,21 @@
+package ncpl.bms.reports.controller;
+
+import ncpl.bms.reports.service.ReportMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("v1")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ReportMetricsController {
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @GetMapping("report-metrics")
+    public Map<String, Long> getReportMetrics() {
+        return reportMetrics.snapshot();
+    }
+}
@@ -7,6 +7,7 @@ import ncpl.bms.reports.model.dto.GroupDTO;
 import ncpl.bms.reports.model.dto.ReportDTO;
 import ncpl.bms.reports.service.*;
 import ncpl.bms.reports.util.DateConverter;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -136,7 +137,10 @@ public class ReportsController {
                                 @RequestParam String toDate,
                                 @RequestParam("username") String username,
                                 @RequestParam String assignedTo,
-                                @RequestParam(required = false) String assigned_approver) throws Exception {
+                                @RequestParam(required = false) String assigned_approver,
+                                @RequestParam(required = false) String engine,
+                                @RequestParam(required = false) String interval,
+                                @RequestParam(required = false) String downsample) throws Exception {
 
         Long fromDateMills = dateConverter.stringToLong(fromDate);
         Long toDateMills = dateConverter.stringToLong(toDate);
@@ -146,7 +150,31 @@ public class ReportsController {
             assigned_approver = null;
         }
 
-        pdfService.generatePdf(id, fromDateMills.toString(), toDateMills.toString(), username, assignedTo, assigned_approver);
+        // engine=staging|merge picks how rows are produced, defaults to report.generation.mode
+        // interval=15m|1h|1d prints one row per interval, read from rollups when they fit or reduced with downsample=avg|last|lttb
+        pdfService.generatePdf(id, fromDateMills.toString(), toDateMills.toString(), username, assignedTo, assigned_approver,
+                reportDataService.resolveMode(engine), reportDataService.resolveInterval(interval), reportDataService.resolveDownsampleMode(downsample));
+    }
+
+    // Export Report as PDF written straight to the response instead of being stored
+    @GetMapping("exportReport/stream")
+    public void streamPdfReport(@RequestParam Long id,
+                                @RequestParam String fromDate,
+                                @RequestParam String toDate,
+                                @RequestParam("username") String username,
+                                @RequestParam(required = false) String engine,
+                                @RequestParam(required = false) String interval,
+                                @RequestParam(required = false) String downsample,
+                                HttpServletResponse response) throws Exception {
+
+        Long fromDateMills = dateConverter.stringToLong(fromDate);
+        Long toDateMills = dateConverter.stringToLong(toDate);
+
+        response.setContentType("application/pdf");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + pdfService.getReportFileName(id) + "\"");
+        pdfService.streamPdf(id, fromDateMills.toString(), toDateMills.toString(), username,
+                reportDataService.resolveMode(engine), reportDataService.resolveInterval(interval),
+                reportDataService.resolveDownsampleMode(downsample), response.getOutputStream());
     }
 
     // Get All Reports
@@ -18,6 +18,12 @@ public class SchedulingController {
     @Autowired
     private SchedulingService schedulingService;
 
+    @Autowired
+    private ReportScheduler reportScheduler;
+
+    @Autowired
+    private ReportCluster reportCluster;
+
     // Schedule daily report
     @PostMapping("/schedule-report-daily")
     public void scheduleReport(@RequestBody Map<String, String> requestBody) {
@@ -28,7 +34,7 @@ public class SchedulingController {
         int id = Integer.parseInt(Strid);
         String ScheduledBy = requestBody.get("scheduledBy");
         String dailyTime = requestBody.get("dailyTime");  // Get the dailyTime from the request
-        schedulingService.scheduleDailyReport( id, name, assignedTo, assigned_approver, ScheduledBy, dailyTime);
+        schedulingService.scheduleDailyReport( id, name, assignedTo, assigned_approver, ScheduledBy, dailyTime, requestBody.get("cron"));
     }
 
     @PostMapping("/schedule-report-weekly")
@@ -41,7 +47,7 @@ public class SchedulingController {
         String ScheduledBy = requestBody.get("scheduledBy");
         String weeklyTime = requestBody.get("weeklyTime");
         String weeklyDay = requestBody.get("weeklyDay");
-        schedulingService.scheduleWeeklyReport( id, name, assignedTo, assigned_approver, ScheduledBy, weeklyTime, weeklyDay);
+        schedulingService.scheduleWeeklyReport( id, name, assignedTo, assigned_approver, ScheduledBy, weeklyTime, weeklyDay, requestBody.get("cron"));
     }
 
     @PostMapping("/schedule-report-monthly")
@@ -54,7 +60,7 @@ public class SchedulingController {
         String ScheduledBy = requestBody.get("scheduledBy");
         String monthTime = requestBody.get("monthlyTime");
         String monthDay = requestBody.get("monthlyDay");
-        schedulingService.scheduleMonthlyReport( id, name, assignedTo, assigned_approver, ScheduledBy, monthTime, monthDay);
+        schedulingService.scheduleMonthlyReport( id, name, assignedTo, assigned_approver, ScheduledBy, monthTime, monthDay, requestBody.get("cron"));
     }
 
     @GetMapping("/get-all-daily-scheduled-reports")
@@ -72,4 +78,16 @@ public class SchedulingController {
         return schedulingService.getAllMonthlyScheduledReports();
     }
 
-}
\ No newline at end of file
+    // Next run of every scheduled report, in fire order
+    @GetMapping("/scheduled-runs")
+    public List<ScheduleEntry> getScheduledRuns() {
+        return reportScheduler.getEntries();
+    }
+
+    // Instances currently sharing the scheduled reports
+    @GetMapping("/report-nodes")
+    public List<String> getReportNodes() {
+        return reportCluster.getLiveNodes();
+    }
+
+}
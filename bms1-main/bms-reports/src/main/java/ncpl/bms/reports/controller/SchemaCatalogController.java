@@ -0,0 +1,71 @@
+package ncpl.bms.reports.controller;
+
+import ncpl.bms.reports.db.info.IndexAdvice;
+import ncpl.bms.reports.db.info.IndexAdvisor;
+import ncpl.bms.reports.db.info.SchemaCatalog;
+import ncpl.bms.reports.db.info.SchemaTable;
+import ncpl.bms.reports.db.info.TableInfoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("v1")
+@CrossOrigin(origins = "http://localhost:4200")
+public class SchemaCatalogController {
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    @Autowired
+    private TableInfoService tableInfoService;
+
+    @Autowired
+    private IndexAdvisor indexAdvisor;
+
+    // Readiness probe: 503 until the startup catalog bootstrap has finished
+    @GetMapping("ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        boolean ready = tableInfoService.isReady();
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("ready", ready, "catalogLoaded", schemaCatalog.isLoaded()));
+    }
+
+    // Tables with their column types, as currently cached; 503 while the catalog is still being read
+    @GetMapping("schema")
+    public ResponseEntity<Map<String, SchemaTable>> getSchema() {
+        if (!schemaCatalog.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(schemaCatalog.getTables());
+    }
+
+    // Picks up schema changes now instead of at the next poll; full=true re-reads every table
+    @PostMapping("schema/refresh")
+    public Map<String, Integer> refreshSchema(@RequestParam(defaultValue = "false") boolean full) {
+        int reloaded = full ? schemaCatalog.rebuild() : schemaCatalog.refresh();
+        return Map.of("tablesReloaded", reloaded, "tables", schemaCatalog.getTables().size());
+    }
+
+    // Index check of the point tables and report_data, with row counts and observed seeks/scans
+    @GetMapping("indexes")
+    public ResponseEntity<List<IndexAdvice>> getIndexAdvice() {
+        if (!schemaCatalog.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(indexAdvisor.advise());
+    }
+
+    // Creates the missing and covering indexes report.index.auto-create allows
+    @PostMapping("indexes/apply")
+    public ResponseEntity<List<IndexAdvice>> applyIndexes() {
+        if (!schemaCatalog.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(indexAdvisor.apply());
+    }
+}
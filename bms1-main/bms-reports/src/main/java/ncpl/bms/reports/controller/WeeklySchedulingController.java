@@ -20,6 +20,8 @@ import java.util.Map;
 @Slf4j
 public class WeeklySchedulingController {
 
+    @Autowired
+    private ReportScheduler reportScheduler;
 
     @Autowired
     private WeeklySchedulingService weeklySchedulingService;
@@ -34,6 +36,11 @@ public class WeeklySchedulingController {
 
     @Scheduled(cron = "0 0 * * * ?") // This will run the job at the start of every hour
     public void runWeeklyReportGenerationTask() {
+        // Replaced by the minute-precision ReportScheduler unless report.schedule.engine=cron
+        // With several nodes on one database only the first to claim the hour runs the poll
+        if (reportScheduler.isEnabled() || !reportScheduler.claimHourlyPoll(ScheduleKind.WEEKLY)) {
+            return;
+        }
         //log.info("Started cron job for weekly report generation");
         weeklySchedulingService.generateWeeklyReports();
     }
@@ -0,0 +1,91 @@
+package ncpl.bms.reports.db;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Creates the report service's own tables and columns when they are missing. Existence is read
+ * from JDBC metadata instead of OBJECT_ID/COL_LENGTH, so the same DDL runs on SQL Server and on
+ * the H2 databases the tests use. Column definitions must stick to types both understand; use
+ * longText() for unbounded strings.
+ */
+public final class ReportSchema {
+
+    private ReportSchema() {
+    }
+
+    public static void createTable(JdbcTemplate jdbcTemplate, String table, String columns) {
+        if (!tableExists(jdbcTemplate, table)) {
+            jdbcTemplate.execute("CREATE TABLE " + table + " (" + columns + ")");
+        }
+    }
+
+    // Adds a nullable column to a table that exists but predates it
+    public static void addColumn(JdbcTemplate jdbcTemplate, String table, String column, String type) {
+        if (tableExists(jdbcTemplate, table) && !columnExists(jdbcTemplate, table, column)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD " + column + " " + type + " NULL");
+        }
+    }
+
+    public static boolean tableExists(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : spellings(table, metaData.getSearchStringEscape())) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, new String[]{"TABLE"})) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    public static boolean columnExists(JdbcTemplate jdbcTemplate, String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String escape = metaData.getSearchStringEscape();
+            for (String tableName : spellings(table, escape)) {
+                for (String columnName : spellings(column, escape)) {
+                    try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, tableName, columnName)) {
+                        if (columns.next()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }));
+    }
+
+    // NVARCHAR(MAX) on SQL Server; other databases have no MAX length
+    public static String longText(JdbcTemplate jdbcTemplate) {
+        return isSqlServer(jdbcTemplate) ? "NVARCHAR(MAX)" : "VARCHAR(1000000)";
+    }
+
+    // An INT key numbered by the database; SQL Server has no GENERATED ... AS IDENTITY
+    public static String identity(JdbcTemplate jdbcTemplate) {
+        return isSqlServer(jdbcTemplate) ? "INT NOT NULL IDENTITY(1,1)" : "INT GENERATED BY DEFAULT AS IDENTITY";
+    }
+
+    private static boolean isSqlServer(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return product != null && product.contains("SQL Server");
+    }
+
+    // Metadata lookups are case-sensitive on some databases even where identifiers are not, and
+    // take LIKE patterns, where the underscores of our names would match any character
+    private static Set<String> spellings(String name, String escape) {
+        String pattern = escape == null || escape.isEmpty() ? name : name.replace("_", escape + "_");
+        Set<String> names = new LinkedHashSet<>();
+        names.add(pattern);
+        names.add(pattern.toLowerCase());
+        names.add(pattern.toUpperCase());
+        return names;
+    }
+}
@@ -0,0 +1,30 @@
+package ncpl.bms.reports.db.info;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Index check result for one table. rowCount is what a full scan reads (the estimate);
+ * userSeeks/userScans are what SQL Server has actually done on the table since its last restart,
+ * null when the login may not read index usage statistics.
+ */
+@Getter
+@Setter
+public class IndexAdvice {
+
+    public enum Status { OK, NOT_COVERING, MISSING, CREATED, FAILED }
+
+    private String table;
+    private boolean ownTable;
+    private List<String> keyColumns;
+    private String coveredColumn;
+    private Status status;
+    private String index;
+    private String recommendedDdl;
+    private Long rowCount;
+    private Long userSeeks;
+    private Long userScans;
+    private String error;
+}
@@ -0,0 +1,221 @@
+package ncpl.bms.reports.db.info;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.service.ReportMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Checks that the range queries of report generation can seek: point tables need an index
+ * leading on timestamp that covers value, report_data one leading on (request_key, timestamp).
+ * Missing and non-covering indexes are created where report.index.auto-create allows it, the
+ * rest is reported with the DDL that would fix it.
+ */
+@Component
+@Slf4j
+public class IndexAdvisor {
+
+    private static final String STAGING_TABLE = "report_data";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.table.prefix}")
+    private String tablePrefix;
+
+    @Value("${report.index.auto-create:own}")
+    private String autoCreate;
+
+    private static final class IndexShape {
+        private final String name;
+        private final boolean clustered;
+        private final List<String> keys = new ArrayList<>();
+        private final Set<String> included = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        private IndexShape(String name, boolean clustered) {
+            this.name = name;
+            this.clustered = clustered;
+        }
+
+        private boolean leadsWith(List<String> columns) {
+            if (keys.size() < columns.size()) {
+                return false;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (!keys.get(i).equalsIgnoreCase(columns.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // A clustered index carries every column of the row
+        private boolean covers(String column) {
+            return column == null || clustered || included.contains(column)
+                    || keys.stream().anyMatch(column::equalsIgnoreCase);
+        }
+    }
+
+    // Report only
+    public List<IndexAdvice> advise() {
+        return inspect();
+    }
+
+    // Creates the missing and covering indexes auto-create allows and reports the outcome for every table
+    public List<IndexAdvice> apply() {
+        IndexAutoCreate mode = IndexAutoCreate.from(autoCreate, IndexAutoCreate.OWN);
+        List<IndexAdvice> advice = inspect();
+        int created = 0;
+        int failed = 0;
+        for (IndexAdvice table : advice) {
+            if (table.getRecommendedDdl() == null || !mode.allows(table.isOwnTable())) {
+                continue;
+            }
+            long started = System.currentTimeMillis();
+            try {
+                jdbcTemplate.execute(table.getRecommendedDdl());
+                table.setStatus(IndexAdvice.Status.CREATED);
+                created++;
+                log.info("Created index on {} in {} ms: {}", table.getTable(), System.currentTimeMillis() - started, table.getRecommendedDdl());
+            } catch (DataAccessException e) {
+                // Typically no ALTER permission on the historian tables
+                table.setStatus(IndexAdvice.Status.FAILED);
+                table.setError(e.getMostSpecificCause().getMessage());
+                failed++;
+                log.warn("Could not create index on {}: {}", table.getTable(), table.getError());
+            }
+        }
+        reportMetrics.add("index.created", created);
+        reportMetrics.add("index.failed", failed);
+        long missing = advice.stream().filter(a -> a.getStatus() == IndexAdvice.Status.MISSING
+                || a.getStatus() == IndexAdvice.Status.NOT_COVERING).count();
+        log.info("Index check: {} tables, {} created, {} failed, {} still missing or not covering", advice.size(), created, failed, missing);
+        return advice;
+    }
+
+    private List<IndexAdvice> inspect() {
+        Map<String, List<IndexShape>> indexes = readIndexes();
+        Map<String, Long> rowCounts = readRowCounts();
+        Map<String, long[]> usage = readUsage();
+
+        List<IndexAdvice> advice = new ArrayList<>();
+        for (SchemaTable table : schemaCatalog.getTables().values()) {
+            String name = table.getName();
+            boolean ownTable = name.equalsIgnoreCase(STAGING_TABLE);
+            if (!ownTable && !name.startsWith(tablePrefix)) {
+                continue;
+            }
+            List<String> keys = ownTable ? List.of("request_key", "timestamp") : List.of("timestamp");
+            String covered = !ownTable && hasColumns(table, List.of("value")) ? "value" : null;
+            if (!hasColumns(table, keys)) {
+                continue;
+            }
+
+            IndexAdvice entry = new IndexAdvice();
+            entry.setTable(name);
+            entry.setOwnTable(ownTable);
+            entry.setKeyColumns(keys);
+            entry.setCoveredColumn(covered);
+            entry.setRowCount(rowCounts.get(name));
+            long[] counts = usage.get(name);
+            if (counts != null) {
+                entry.setUserSeeks(counts[0]);
+                entry.setUserScans(counts[1]);
+            }
+
+            IndexShape leading = null;
+            for (IndexShape index : indexes.getOrDefault(name, List.of())) {
+                if (index.leadsWith(keys) && (leading == null || index.covers(covered))) {
+                    leading = index;
+                }
+            }
+            if (leading == null) {
+                entry.setStatus(IndexAdvice.Status.MISSING);
+            } else {
+                entry.setIndex(leading.name);
+                entry.setStatus(leading.covers(covered) ? IndexAdvice.Status.OK : IndexAdvice.Status.NOT_COVERING);
+            }
+            if (entry.getStatus() != IndexAdvice.Status.OK) {
+                String indexName = "IX_" + name + "_" + String.join("_", keys);
+                // A non-covering index of our own name is rebuilt with the INCLUDE instead of clashing with it
+                boolean rebuild = leading != null && leading.name.equalsIgnoreCase(indexName);
+                entry.setRecommendedDdl("CREATE NONCLUSTERED INDEX [" + indexName + "] ON [" + name + "] (" +
+                        String.join(", ", keys) + ")" + (covered == null ? "" : " INCLUDE (" + covered + ")") +
+                        (rebuild ? " WITH (DROP_EXISTING = ON)" : ""));
+            }
+            advice.add(entry);
+        }
+        return advice;
+    }
+
+    private boolean hasColumns(SchemaTable table, List<String> columns) {
+        Set<String> present = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        present.addAll(table.getColumns());
+        return present.containsAll(columns);
+    }
+
+    private Map<String, List<IndexShape>> readIndexes() {
+        Map<String, Map<String, IndexShape>> byTable = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        jdbcTemplate.query("SELECT t.name AS table_name, i.name AS index_name, i.type AS index_type, " +
+                "c.name AS column_name, ic.is_included_column " +
+                "FROM sys.indexes i " +
+                "JOIN sys.tables t ON t.object_id = i.object_id " +
+                "JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id " +
+                "JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id " +
+                "WHERE i.type IN (1, 2) " +
+                "ORDER BY t.name, i.index_id, ic.key_ordinal", rs -> {
+            boolean clustered = rs.getInt("index_type") == 1;
+            IndexShape index = byTable.computeIfAbsent(rs.getString("table_name"), t -> new LinkedHashMap<>())
+                    .computeIfAbsent(rs.getString("index_name"), n -> new IndexShape(n, clustered));
+            if (rs.getBoolean("is_included_column")) {
+                index.included.add(rs.getString("column_name"));
+            } else {
+                index.keys.add(rs.getString("column_name"));
+            }
+        });
+        Map<String, List<IndexShape>> indexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        byTable.forEach((table, shapes) -> indexes.put(table, new ArrayList<>(shapes.values())));
+        return indexes;
+    }
+
+    private Map<String, Long> readRowCounts() {
+        Map<String, Long> rowCounts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        jdbcTemplate.query("SELECT t.name, SUM(p.rows) AS row_count FROM sys.partitions p " +
+                "JOIN sys.tables t ON t.object_id = p.object_id WHERE p.index_id IN (0, 1) GROUP BY t.name", rs -> {
+            rowCounts.put(rs.getString("name"), rs.getLong("row_count"));
+        });
+        return rowCounts;
+    }
+
+    private Map<String, long[]> readUsage() {
+        Map<String, long[]> usage = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try {
+            jdbcTemplate.query("SELECT t.name, SUM(s.user_seeks) AS seeks, SUM(s.user_scans) AS scans " +
+                    "FROM sys.dm_db_index_usage_stats s JOIN sys.tables t ON t.object_id = s.object_id " +
+                    "WHERE s.database_id = DB_ID() GROUP BY t.name", rs -> {
+                usage.put(rs.getString("name"), new long[]{rs.getLong("seeks"), rs.getLong("scans")});
+            });
+        } catch (DataAccessException e) {
+            // Needs VIEW SERVER STATE; the advice is still useful without it
+            log.debug("Index usage statistics unavailable: {}", e.getMessage());
+        }
+        return usage;
+    }
+}
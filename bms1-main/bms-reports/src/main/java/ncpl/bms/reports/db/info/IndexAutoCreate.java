@@ -0,0 +1,23 @@
+package ncpl.bms.reports.db.info;
+
+/**
+ * Which missing indexes the index advisor may create.
+ * NONE only reports, OWN creates indexes on tables this application owns (report_data),
+ * ALL also creates them on the historian point tables.
+ */
+public enum IndexAutoCreate {
+    NONE,
+    OWN,
+    ALL;
+
+    public static IndexAutoCreate from(String value, IndexAutoCreate defaultMode) {
+        if (value == null || value.isBlank() || "null".equalsIgnoreCase(value)) {
+            return defaultMode;
+        }
+        return IndexAutoCreate.valueOf(value.trim().toUpperCase());
+    }
+
+    public boolean allows(boolean ownTable) {
+        return this == ALL || (this == OWN && ownTable);
+    }
+}
@@ -0,0 +1,195 @@
+package ncpl.bms.reports.db.info;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.service.ReportMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the database schema: every user table with its columns and types, plus the
+ * sorted list of point tables the UI offers. Loaded by the startup bootstrap in TableInfoService
+ * (or on first use) and kept current by polling sys.tables; only tables whose modify_date changed
+ * (DDL bumps it) have their columns re-read. Readers get an immutable snapshot and never query
+ * metadata themselves; while the bootstrap runs that is the seeded one, with points but no tables.
+ */
+@Component
+@Slf4j
+public class SchemaCatalog {
+
+    // Above this many changed tables one full column scan is cheaper than an IN list
+    private static final int INCREMENTAL_LIMIT = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.table.prefix}")
+    private String tablePrefix;
+
+    private volatile Snapshot snapshot;
+
+    // complete is false for a snapshot seeded from table names only, which can serve points but not columns
+    private static final class Snapshot {
+        private final Map<String, SchemaTable> tables;
+        private final List<String> points;
+        private final boolean complete;
+
+        private Snapshot(Map<String, SchemaTable> tables, List<String> points, boolean complete) {
+            this.tables = tables;
+            this.points = points;
+            this.complete = complete;
+        }
+    }
+
+    public Map<String, SchemaTable> getTables() {
+        return loaded().tables;
+    }
+
+    // Point tables (prefix match, "_From..." suffix removed), sorted
+    public List<String> getPoints() {
+        return loaded().points;
+    }
+
+    public SchemaTable getTable(String tableName) {
+        return loaded().tables.get(tableName);
+    }
+
+    public boolean isLoaded() {
+        Snapshot current = snapshot;
+        return current != null && current.complete;
+    }
+
+    /**
+     * Serves points from a previously known list of table names until the first refresh has
+     * read the database, so the UI does not wait on a cold catalog. No-op once loaded.
+     */
+    public synchronized void seed(Collection<String> tableNames) {
+        if (snapshot == null) {
+            snapshot = new Snapshot(Map.of(), points(tableNames), false);
+        }
+    }
+
+    // A seeded snapshot is served as it is; refreshing inline would block requests behind the bootstrap
+    private Snapshot loaded() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            refresh();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${report.schema.refresh-ms:60000}", initialDelayString = "${report.schema.refresh-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keep serving the last snapshot; the next poll tries again
+            log.warn("Schema catalog refresh failed: {}", e.getMessage());
+            reportMetrics.increment("schema.refresh.failures");
+        }
+    }
+
+    // Drops the snapshot and reads every table again
+    public synchronized int rebuild() {
+        snapshot = null;
+        return refresh();
+    }
+
+    /**
+     * Re-reads the columns of tables created or altered since the last refresh and drops tables
+     * that no longer exist. Returns the number of tables re-read.
+     */
+    public synchronized int refresh() {
+        long started = System.currentTimeMillis();
+        Map<String, SchemaTable> previous = isLoaded() ? snapshot.tables : Map.of();
+
+        Map<String, Timestamp> modifyDates = new HashMap<>();
+        jdbcTemplate.query("SELECT name, modify_date FROM sys.tables WHERE is_ms_shipped = 0",
+                rs -> {
+                    modifyDates.put(rs.getString("name"), rs.getTimestamp("modify_date"));
+                });
+
+        Set<String> changed = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        modifyDates.forEach((name, modified) -> {
+            SchemaTable known = previous.get(name);
+            if (known == null || !Objects.equals(known.getModifyDate(), modified)) {
+                changed.add(name);
+            }
+        });
+        boolean dropped = previous.keySet().stream().anyMatch(name -> !modifyDates.containsKey(name));
+        if (isLoaded() && changed.isEmpty() && !dropped) {
+            return 0;
+        }
+
+        Map<String, Map<String, String>> columns = readColumns(changed);
+        Map<String, SchemaTable> tables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        modifyDates.forEach((name, modified) -> tables.put(name, changed.contains(name)
+                ? new SchemaTable(name, modified, columns.getOrDefault(name, Map.of()))
+                : previous.get(name)));
+
+        List<String> points = points(tables.keySet());
+        snapshot = new Snapshot(Collections.unmodifiableMap(tables), points, true);
+
+        reportMetrics.add("schema.refresh.tables", changed.size());
+        reportMetrics.recordRun("schema", changed.size(), System.currentTimeMillis() - started);
+        log.info("Schema catalog refreshed: {} tables, {} re-read, {} points", tables.size(), changed.size(), points.size());
+        return changed.size();
+    }
+
+    private Map<String, Map<String, String>> readColumns(Set<String> tableNames) {
+        Map<String, Map<String, String>> columns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (tableNames.isEmpty()) {
+            return columns;
+        }
+        String sql = "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS";
+        List<Object> args = new ArrayList<>();
+        if (tableNames.size() <= INCREMENTAL_LIMIT) {
+            sql += " WHERE TABLE_NAME IN (" + String.join(",", Collections.nCopies(tableNames.size(), "?")) + ")";
+            args.addAll(tableNames);
+        }
+        sql += " ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+        jdbcTemplate.query(sql, rs -> {
+            String table = rs.getString("TABLE_NAME");
+            if (tableNames.contains(table)) {
+                columns.computeIfAbsent(table, t -> new LinkedHashMap<>()).put(rs.getString("COLUMN_NAME"), rs.getString("DATA_TYPE"));
+            }
+        }, args.toArray());
+        return columns;
+    }
+
+    private List<String> points(Collection<String> tableNames) {
+        return tableNames.stream()
+                .filter(t -> t.startsWith(tablePrefix))
+                .map(this::removeSuffix)
+                .sorted()
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private String removeSuffix(String tableName) {
+        if (tableName.contains("_From")) {
+            return tableName.substring(0, tableName.indexOf("_From"));
+        }
+        return tableName;
+    }
+}
@@ -0,0 +1,32 @@
+package ncpl.bms.reports.db.info;
+
+import lombok.Getter;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One table as held by the schema catalog: its columns with their SQL types in ordinal order,
+ * and the sys.tables modify_date they were read at.
+ */
+@Getter
+public class SchemaTable {
+
+    private final String name;
+    private final Timestamp modifyDate;
+    private final Map<String, String> columnTypes;
+
+    public SchemaTable(String name, Timestamp modifyDate, Map<String, String> columnTypes) {
+        this.name = name;
+        this.modifyDate = modifyDate;
+        this.columnTypes = Collections.unmodifiableMap(new LinkedHashMap<>(columnTypes));
+    }
+
+    public List<String> getColumns() {
+        return new ArrayList<>(columnTypes.keySet());
+    }
+}
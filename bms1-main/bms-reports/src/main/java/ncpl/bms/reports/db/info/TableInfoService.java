@@ -1,15 +1,21 @@
 package ncpl.bms.reports.db.info;
 
 import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.ReportSchema;
 import ncpl.bms.reports.db.info.TableInfoRepository;
 import ncpl.bms.reports.service.ReportDataService;
+import ncpl.bms.reports.service.ReportMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +26,26 @@ public class TableInfoService implements CommandLineRunner {
     private TableInfoRepository tableInfoRepository;
     @Autowired
     private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+    @Autowired
+    private ReportMetrics reportMetrics;
+    @Autowired
+    private ExecutorService catalogBootstrapExecutor;
+
+    @Autowired
+    private IndexAdvisor indexAdvisor;
+
+    @Value("${report.catalog.async-bootstrap:true}")
+    private boolean asyncBootstrap;
+
+    @Value("${report.index.check-on-startup:true}")
+    private boolean checkIndexes;
+
+    @Value("${report.staging.wide-max-columns:1000}")
+    private int wideMaxColumns;
+
+    private volatile boolean ready;
 
     /**
      * This is a configurable value to identify report specific tables only
@@ -50,68 +76,115 @@ public class TableInfoService implements CommandLineRunner {
 //        return tableName;
 //    }
 public List<String> getTables() {
-    //log.info("Getting tables inside TableInfoService");
-    List<String> tablesList = tableInfoRepository.findAllTableNames();
-
-    // Remove suffixes starting with '_From' from table names
-    List<String> cleanedTablesList = tablesList.stream()
-            .filter(t -> t.startsWith(tablePrefix))
-            .map(this::removeSuffix)
-            .sorted() // Ensure the list is sorted
-            .collect(Collectors.toList());
-
-    return cleanedTablesList;
+    // Served from the schema catalog, so listing points no longer queries INFORMATION_SCHEMA
+    return schemaCatalog.getPoints();
 }
 
-    private String removeSuffix(String tableName) {
-        // Customize this method based on the actual suffix patterns
-        if (tableName.contains("_From")) {
-            int suffixIndex = tableName.indexOf("_From");
-            return tableName.substring(0, suffixIndex);
-        }
-        return tableName;
+    // Columns of a table in ordinal order, empty when the table does not exist
+    public List<String> getColumns(String tableName) {
+        SchemaTable table = schemaCatalog.getTable(tableName);
+        return table == null ? List.of() : table.getColumns();
     }
 
 
+    public boolean isReady() {
+        return ready;
+    }
+
     //  This code can be used with command line runner during application startup
         @Override
         public void run(String... args) throws Exception {
-            List<String> tableNames = tableInfoRepository.findAllTableNames();
-            List<String> filteredTablesList = tableNames.stream().filter(t -> t.startsWith(tablePrefix)).collect(Collectors.toList());
-            createTable("report_data", filteredTablesList);
-            for (String tableName : tableNames) {
-                log.info("Table name is : {} " , tableName);
-                TableInfo tableInfo = new TableInfo();
-                tableInfo.setTableName(tableName);
-                tableInfoRepository.save(tableInfo);
+            // Points known from the previous run are served while the catalog is read
+            schemaCatalog.seed(jdbcTemplate.queryForList("SELECT table_name FROM table_info", String.class));
+            if (asyncBootstrap) {
+                catalogBootstrapExecutor.execute(this::bootstrap);
+            } else {
+                bootstrap();
             }
         }
 
+    /**
+     * Reads the schema catalog, makes sure report_data has a column per point, brings
+     * table_info in line with the database and checks the report indexes. Readiness is
+     * reported once this has finished.
+     */
+    void bootstrap() {
+        long started = System.currentTimeMillis();
+        try {
+            schemaCatalog.refresh();
+            List<String> filteredTablesList = schemaCatalog.getTables().keySet().stream()
+                    .filter(t -> t.startsWith(tablePrefix))
+                    .collect(Collectors.toList());
+            if (filteredTablesList.size() > wideMaxColumns) {
+                // SQL Server allows 1,024 columns; templates using the remaining points are joined in memory
+                log.warn("{} point tables exceed report.staging.wide-max-columns={}, report_data gets the first {}",
+                        filteredTablesList.size(), wideMaxColumns, wideMaxColumns);
+                filteredTablesList = filteredTablesList.stream().sorted().limit(wideMaxColumns).collect(Collectors.toList());
+            }
+            createTable("report_data", filteredTablesList);
+            addRequestKeyColumn("report_data");
+            schemaCatalog.refresh();
 
-    public void createTable(String tableName, List<String> columnNames) {
-        StringBuilder sql = new StringBuilder();
+            int changed = syncTableInfo(schemaCatalog.getTables().keySet());
+            if (checkIndexes) {
+                applyIndexes();
+            }
+            ready = true;
+            reportMetrics.recordRun("catalog.bootstrap", changed, System.currentTimeMillis() - started);
+            log.info("Table catalog ready in {} ms: {} tables, {} table_info rows changed",
+                    System.currentTimeMillis() - started, schemaCatalog.getTables().size(), changed);
+        } catch (RuntimeException e) {
+            // The scheduled catalog refresh keeps retrying the schema; readiness stays down
+            log.error("Table catalog bootstrap failed", e);
+        }
+    }
 
-        // Check if the table exists before creating it
-        sql.append("IF NOT EXISTS (SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = '")
-                .append(tableName)
-                .append("') BEGIN ");
+    private void applyIndexes() {
+        try {
+            indexAdvisor.apply();
+        } catch (RuntimeException e) {
+            // Slower queries, not a reason to stay unready
+            log.warn("Index check failed: {}", e.getMessage());
+        }
+    }
 
-        // Create table statement
-        sql.append("CREATE TABLE ").append(tableName).append(" (");
-        sql.append("report_id INT NOT NULL IDENTITY(1,1), ");
-        sql.append("timestamp BIGINT");
+    // Diffs table_info against the current tables and applies the difference in two batches
+    int syncTableInfo(Collection<String> tableNames) {
+        Set<String> known = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        known.addAll(jdbcTemplate.queryForList("SELECT table_name FROM table_info", String.class));
+        Set<String> current = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        current.addAll(tableNames);
+
+        List<Object[]> inserts = current.stream().filter(t -> !known.contains(t)).map(t -> new Object[]{t}).toList();
+        List<Object[]> deletes = known.stream().filter(t -> !current.contains(t)).map(t -> new Object[]{t}).toList();
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO table_info (table_name) VALUES (?)", inserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM table_info WHERE table_name = ?", deletes);
+        }
+        return inserts.size() + deletes.size();
+    }
 
-        // Append column names to the SQL statement
-        for (int i = 0; i < columnNames.size(); i++) {
-            sql.append(", ").append(columnNames.get(i)).append(" INT");
+
+    public void createTable(String tableName, List<String> columnNames) {
+        StringBuilder columns = new StringBuilder();
+        columns.append("report_id ").append(ReportSchema.identity(jdbcTemplate)).append(", ");
+        columns.append("request_key VARCHAR(36), ");
+        columns.append("timestamp BIGINT");
+
+        // A column per point
+        for (String columnName : columnNames) {
+            columns.append(", ").append(columnName).append(" INT");
         }
+        columns.append(", PRIMARY KEY (report_id)");
 
-        // Add primary key and close the table creation statement
-        sql.append(", PRIMARY KEY (report_id));"); // Use a semicolon to terminate the CREATE TABLE statement
-        sql.append(" END;"); // Use a semicolon to terminate the IF statement
+        ReportSchema.createTable(jdbcTemplate, tableName, columns.toString());
+    }
 
-        // Execute the statement
-        jdbcTemplate.execute(sql.toString());
+    // Staged rows are tagged with the export request that wrote them; older report_data tables lack the column
+    public void addRequestKeyColumn(String tableName) {
+        ReportSchema.addColumn(jdbcTemplate, tableName, "request_key", "VARCHAR(36)");
     }
 
 
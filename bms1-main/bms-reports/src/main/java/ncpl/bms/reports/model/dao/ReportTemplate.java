@@ -1,10 +1,12 @@
 package ncpl.bms.reports.model.dao;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
@@ -19,8 +21,14 @@ public class ReportTemplate {
 
     private String name;
 
+    // Legacy Java-serialized List<String>; still written on every save so a rollback reads current parameters
     @Column(columnDefinition = "VARBINARY(MAX)")
-    private byte[] parameters;  // Store as VARBINARY(MAX)
+    private byte[] parameters;
+
+    @JsonIgnore
+    @Convert(converter = TemplateParametersConverter.class)
+    @Column(name = "parameters_json", columnDefinition = "NVARCHAR(MAX)")
+    private List<TemplateParameter> structuredParameters;
 
 //    @Column(columnDefinition = "VARCHAR(MAX)")
 //    private String units;  // Store as VARCHAR
@@ -28,28 +36,42 @@ public class ReportTemplate {
     private String additionalInfo;
     private String report_group;
 
-    // **Serialize List<String> to byte[]**
+    // **Parse "TABLE_From_x_To_y_Unit_z" strings into structured parameters**
+    // Strings the structured form cannot reproduce exactly are kept on the legacy column only
     public void setParameters(List<String> parameters) {
-        this.parameters = serializeList(parameters);
+        this.parameters = encodeLegacyParameters(parameters);
+        this.structuredParameters = parameters == null || !parameters.stream().allMatch(TemplateParameter::roundTrips) ? null
+                : parameters.stream().map(TemplateParameter::parse).toList();
     }
 
-    // **Deserialize byte[] to List<String>**
+    // **Parameters in the string form the API has always exchanged**
     public List<String> getParameters() {
-        return deserializeList(this.parameters);
+        if (structuredParameters != null) {
+            return structuredParameters.stream().map(TemplateParameter::toLegacyString).toList();
+        }
+        return decodeLegacyParameters(this.parameters);
+    }
+
+    public List<TemplateParameter> getStructuredParameters() {
+        if (structuredParameters != null) {
+            return structuredParameters;
+        }
+        List<String> legacy = decodeLegacyParameters(this.parameters);
+        return legacy == null ? null : legacy.stream().map(TemplateParameter::parse).toList();
     }
 
-    private byte[] serializeList(List<String> list) {
+    public static byte[] encodeLegacyParameters(List<String> list) {
         if (list == null) return null;
         try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
              ObjectOutputStream out = new ObjectOutputStream(bos)) {
-            out.writeObject(list);
+            out.writeObject(new ArrayList<>(list));
             return bos.toByteArray();
         } catch (IOException e) {
             throw new RuntimeException("Error serializing list", e);
         }
     }
 
-    private List<String> deserializeList(byte[] data) {
+    public static List<String> decodeLegacyParameters(byte[] data) {
         if (data == null) return null;
         try (ByteArrayInputStream bis = new ByteArrayInputStream(data);
              ObjectInputStream in = new ObjectInputStream(bis)) {
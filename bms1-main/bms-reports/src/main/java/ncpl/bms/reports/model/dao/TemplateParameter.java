@@ -0,0 +1,75 @@
+package ncpl.bms.reports.model.dao;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One parameter of a report template: the point table it reads and its optional range and unit.
+ * The API still exchanges parameters as "TABLE_From_x_To_y_Unit_z" strings; parse() and
+ * toLegacyString() convert between the two forms.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TemplateParameter {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("_From_(-?\\d+(?:\\.\\d+)?)_To_(-?\\d+(?:\\.\\d+)?)");
+    private static final Pattern UNIT_PATTERN = Pattern.compile("_Unit_(.+)$");
+
+    private String name;
+    private Double from;
+    private Double to;
+    private String unit;
+
+    public static TemplateParameter parse(String parameter) {
+        String name = parameter;
+        for (String suffix : new String[]{"_From_", "_To_", "_Unit_"}) {
+            if (name.contains(suffix)) {
+                name = name.substring(0, name.indexOf(suffix));
+            }
+        }
+
+        Double from = null;
+        Double to = null;
+        Matcher range = RANGE_PATTERN.matcher(parameter);
+        if (range.find()) {
+            from = Double.parseDouble(range.group(1));
+            to = Double.parseDouble(range.group(2));
+        }
+
+        Matcher unitMatcher = UNIT_PATTERN.matcher(parameter);
+        String unit = unitMatcher.find() ? unitMatcher.group(1) : null;
+
+        return new TemplateParameter(name, from, to, unit);
+    }
+
+    // False when the structured form would not give back exactly this string
+    public static boolean roundTrips(String parameter) {
+        return parameter != null && parameter.equals(parse(parameter).toLegacyString());
+    }
+
+    public String toLegacyString() {
+        StringBuilder legacy = new StringBuilder(name);
+        if (from != null && to != null) {
+            legacy.append("_From_").append(plain(from)).append("_To_").append(plain(to));
+        }
+        if (unit != null && !unit.isEmpty()) {
+            legacy.append("_Unit_").append(unit);
+        }
+        return legacy.toString();
+    }
+
+    // 20.0 -> "20", 20.5 -> "20.5", matching how ranges are typed in the template editor
+    private static String plain(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,40 @@
+package ncpl.bms.reports.model.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.List;
+
+/**
+ * Stores template parameters as a compact JSON array, e.g.
+ * [{"name":"SYNGENE_AHU1","from":0.0,"to":50.0,"unit":"C"}].
+ */
+@Converter
+public class TemplateParametersConverter implements AttributeConverter<List<TemplateParameter>, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<List<TemplateParameter>> TYPE = new TypeReference<>() {};
+
+    @Override
+    public String convertToDatabaseColumn(List<TemplateParameter> parameters) {
+        if (parameters == null) return null;
+        try {
+            return MAPPER.writeValueAsString(parameters);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error writing template parameters", e);
+        }
+    }
+
+    @Override
+    public List<TemplateParameter> convertToEntityAttribute(String json) {
+        if (json == null) return null;
+        try {
+            return MAPPER.readValue(json, TYPE);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error reading template parameters", e);
+        }
+    }
+}
@@ -9,12 +9,10 @@ import java.io.ByteArrayInputStream;
 import lombok.extern.slf4j.Slf4j;
 import ncpl.bms.reports.model.dto.AlarmRecordDTO;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import java.awt.*;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.sql.ResultSet;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -32,6 +30,9 @@ public class AlarmReportService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private PdfResources pdfResources;
+
     public List<AlarmRecordDTO> fetchAlarmLogs(long startMillis, long endMillis) {
         String sql = "SELECT " +
                 "r.[timestamp],"+
@@ -161,8 +162,7 @@ public class AlarmReportService {
         String reviewText = "Reviewed By: " + effectiveReviewer;
         String generatedText = "Generated on: " + formattedDate;
 
-        BaseFont baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.EMBEDDED);
-        Font font = new Font(baseFont, 9);
+        Font font = pdfResources.font(9);
 
         for (int i = 1; i <= reader.getNumberOfPages(); i++) {
             PdfContentByte canvas = stamper.getOverContent(i);
@@ -245,15 +245,11 @@ public class AlarmReportService {
                 Font titleFontBold = new Font(Font.HELVETICA, 18, Font.BOLD);
                 Font titleFont = new Font(Font.HELVETICA, 12);
                 Font footerFont = new Font(Font.HELVETICA, 9);
-                Image logo;
+                Image logo = pdfResources.logo();
 
                 {
-                    try {
-                        logo = Image.getInstance(new ClassPathResource("static/images/logo.png").getFile().getAbsolutePath());
+                    if (logo != null) {
                         logo.scaleToFit(90, 40);
-                    } catch (IOException e) {
-                        log.error("Logo load error", e);
-                        logo = null;
                     }
                 }
 
@@ -293,7 +289,7 @@ public class AlarmReportService {
                         metaTable.setTotalWidth(document.getPageSize().getWidth() - document.leftMargin() - document.rightMargin());
                         metaTable.setLockedWidth(true);
 
-                        Font infoFont = new Font(Font.HELVETICA, 9);
+                        Font infoFont = pdfResources.font(9);
                         String startDate = formatEpoch(startMillis);
                         String endDate = formatEpoch(endMillis);
 
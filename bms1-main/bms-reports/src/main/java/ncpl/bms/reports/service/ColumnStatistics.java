@@ -0,0 +1,196 @@
+package ncpl.bms.reports.service;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass statistics for one report column: count, min/max with the timestamp they
+ * occurred at, mean, population standard deviation and approximate p95/p99 (P-square
+ * estimator, constant memory). Values are fed while the frame is being filled.
+ */
+public class ColumnStatistics {
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long minTimestamp;
+    private long maxTimestamp;
+    private double mean;
+    private double m2;
+    private final P2Quantile p95 = new P2Quantile(0.95);
+    private final P2Quantile p99 = new P2Quantile(0.99);
+
+    public void accept(long timestamp, double value) {
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+            maxTimestamp = timestamp;
+        }
+        if (value < min) {
+            min = value;
+            minTimestamp = timestamp;
+        }
+        // Welford's update, only used for the deviation; the average comes from the exact sum
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        p95.accept(value);
+        p99.accept(value);
+    }
+
+    // Folds in a whole rollup bucket; mean and deviation are merged exactly, percentiles see the bucket average
+    public void accept(RollupBucket bucket) {
+        long n = bucket.getCount();
+        if (n == 0) {
+            return;
+        }
+        long total = count + n;
+        sum += bucket.getSum();
+        if (bucket.getMax() > max) {
+            max = bucket.getMax();
+            maxTimestamp = bucket.getMaxTimestamp();
+        }
+        if (bucket.getMin() < min) {
+            min = bucket.getMin();
+            minTimestamp = bucket.getMinTimestamp();
+        }
+        double bucketMean = bucket.getAverage();
+        double bucketM2 = Math.max(0, bucket.getSumSquares() - bucket.getSum() * bucketMean);
+        double delta = bucketMean - mean;
+        mean += delta * n / total;
+        m2 += bucketM2 + delta * delta * count * n / total;
+        count = total;
+        p95.accept(bucketMean);
+        p99.accept(bucketMean);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public double getAverage() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public double getStdDev() {
+        return count == 0 ? Double.NaN : Math.sqrt(m2 / count);
+    }
+
+    public double getP95() {
+        return p95.value();
+    }
+
+    public double getP99() {
+        return p99.value();
+    }
+
+    /**
+     * P-square quantile estimator (Jain and Chlamtac): five markers whose heights converge
+     * on the requested quantile without keeping the samples.
+     */
+    private static final class P2Quantile {
+        private final double p;
+        private final double[] heights = new double[5];
+        private final int[] positions = new int[5];
+        private final double[] desired = new double[5];
+        private final double[] increments;
+        private int count;
+
+        private P2Quantile(double p) {
+            this.p = p;
+            this.increments = new double[]{0, p / 2, p, (1 + p) / 2, 1};
+        }
+
+        private void accept(double x) {
+            if (count < 5) {
+                heights[count++] = x;
+                if (count == 5) {
+                    Arrays.sort(heights);
+                    for (int i = 0; i < 5; i++) {
+                        positions[i] = i + 1;
+                    }
+                    desired[0] = 1;
+                    desired[1] = 1 + 2 * p;
+                    desired[2] = 1 + 4 * p;
+                    desired[3] = 3 + 2 * p;
+                    desired[4] = 5;
+                }
+                return;
+            }
+            count++;
+
+            int cell;
+            if (x < heights[0]) {
+                heights[0] = x;
+                cell = 0;
+            } else if (x >= heights[4]) {
+                heights[4] = x;
+                cell = 3;
+            } else {
+                cell = 0;
+                while (cell < 3 && x >= heights[cell + 1]) {
+                    cell++;
+                }
+            }
+            for (int i = cell + 1; i < 5; i++) {
+                positions[i]++;
+            }
+            for (int i = 0; i < 5; i++) {
+                desired[i] += increments[i];
+            }
+
+            for (int i = 1; i < 4; i++) {
+                double d = desired[i] - positions[i];
+                if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                    int step = d > 0 ? 1 : -1;
+                    double candidate = parabolic(i, step);
+                    if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                        heights[i] = candidate;
+                    } else {
+                        heights[i] = heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+                    }
+                    positions[i] += step;
+                }
+            }
+        }
+
+        private double parabolic(int i, int step) {
+            double left = positions[i] - positions[i - 1];
+            double right = positions[i + 1] - positions[i];
+            double span = positions[i + 1] - positions[i - 1];
+            return heights[i] + step / span * ((left + step) * (heights[i + 1] - heights[i]) / right
+                    + (right - step) * (heights[i] - heights[i - 1]) / left);
+        }
+
+        private double value() {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            if (count < 5) {
+                // Too few samples for the markers, use the exact nearest-rank value
+                double[] sorted = Arrays.copyOf(heights, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(p * count) - 1;
+                return sorted[Math.max(0, Math.min(index, count - 1))];
+            }
+            return heights[2];
+        }
+    }
+}
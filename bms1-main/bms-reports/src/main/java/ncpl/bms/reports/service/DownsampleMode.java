@@ -0,0 +1,19 @@
+package ncpl.bms.reports.service;
+
+/**
+ * How rows inside one interval bucket are reduced to a single report row.
+ * AVG averages each column, LAST keeps each column's latest value and LTTB keeps, per column,
+ * the sample that best preserves the shape of the curve (Largest-Triangle-Three-Buckets).
+ */
+public enum DownsampleMode {
+    AVG,
+    LAST,
+    LTTB;
+
+    public static DownsampleMode from(String value, DownsampleMode defaultMode) {
+        if (value == null || value.isBlank() || "null".equalsIgnoreCase(value)) {
+            return defaultMode;
+        }
+        return DownsampleMode.valueOf(value.trim().toUpperCase());
+    }
+}
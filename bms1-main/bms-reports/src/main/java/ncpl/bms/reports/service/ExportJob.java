@@ -0,0 +1,97 @@
+package ncpl.bms.reports.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+
+/**
+ * One asynchronous PDF export as served by the export job endpoints: what was requested,
+ * where it is, and the stored report it produced.
+ */
+@Getter
+public class ExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final Long templateId;
+    private final String fromDate;
+    private final String toDate;
+    private final String username;
+    private final String assignedTo;
+    private final String assignedApprover;
+    private final long submittedAt;
+
+    @JsonIgnore
+    private final ReportGenerationMode mode;
+    @JsonIgnore
+    private final Duration interval;
+    @JsonIgnore
+    private final DownsampleMode downsampleMode;
+    @JsonIgnore
+    private final ExportProgress progress = new ExportProgress();
+    @JsonIgnore
+    private volatile Future<?> future;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Long startedAt;
+    private volatile Long finishedAt;
+    private volatile Long reportId;
+    private volatile String error;
+
+    public ExportJob(String id, Long templateId, String fromDate, String toDate, String username, String assignedTo,
+                     String assignedApprover, ReportGenerationMode mode, Duration interval, DownsampleMode downsampleMode) {
+        this.id = id;
+        this.templateId = templateId;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.username = username;
+        this.assignedTo = assignedTo;
+        this.assignedApprover = assignedApprover;
+        this.mode = mode;
+        this.interval = interval;
+        this.downsampleMode = downsampleMode;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public int getPercent() {
+        return status == Status.DONE ? 100 : progress.getPercent();
+    }
+
+    public long getRowsFetched() {
+        return progress.getRowsFetched();
+    }
+
+    public int getPagesRendered() {
+        return progress.getPagesRendered();
+    }
+
+    // Relative to the API root, the same endpoint the reports list opens a stored report with
+    public String getReportLink() {
+        return reportId == null ? null : "v1/reports/" + reportId;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    void started() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    void finished(Status status, Long reportId, String error) {
+        this.reportId = reportId;
+        this.error = error;
+        this.finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+}
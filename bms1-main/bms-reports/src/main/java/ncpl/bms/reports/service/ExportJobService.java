@@ -0,0 +1,129 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Runs PDF exports in the background so the request thread returns a job id at once. Jobs run
+ * on the bounded export pool; when report.export.queue-depth jobs are already waiting, submit
+ * throws RejectedExecutionException. Finished jobs are kept for report.export.retention so
+ * clients can pick up the stored report id.
+ */
+@Service
+@Slf4j
+public class ExportJobService {
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Autowired
+    private ThreadPoolExecutor exportJobExecutor;
+
+    @Value("${report.export.retention:1h}")
+    private Duration retention;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExportJob submit(Long templateId, String fromDate, String toDate, String username, String assignedTo,
+                            String assignedApprover, ReportGenerationMode mode, Duration interval, DownsampleMode downsampleMode) {
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), templateId, fromDate, toDate, username,
+                assignedTo, assignedApprover, mode, interval, downsampleMode);
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(exportJobExecutor.submit(() -> run(job)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            reportMetrics.increment("export.jobs.rejected");
+            throw e;
+        }
+        reportMetrics.increment("export.jobs.submitted");
+        log.info("Export job {} queued for template {} by {} ({} waiting)", job.getId(), templateId, username,
+                exportJobExecutor.getQueue().size());
+        return job;
+    }
+
+    public ExportJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    // Newest first
+    public List<ExportJob> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong(ExportJob::getSubmittedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * A queued job is dropped from the pool; a running one has its database statements cancelled
+     * and stops at its next check. Returns null for an unknown job.
+     */
+    public ExportJob cancel(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null || job.getStatus().isFinished()) {
+            return job;
+        }
+        job.getProgress().cancel();
+        if (job.getFuture() != null && job.getFuture().cancel(false)) {
+            // Never started, so no worker will record the outcome
+            exportJobExecutor.remove((Runnable) job.getFuture());
+            job.finished(ExportJob.Status.CANCELLED, null, null);
+            reportMetrics.increment("export.jobs.cancelled");
+        }
+        log.info("Export job {} cancelled", jobId);
+        return job;
+    }
+
+    void run(ExportJob job) {
+        ExportProgress progress = job.getProgress();
+        if (progress.isCancelled()) {
+            job.finished(ExportJob.Status.CANCELLED, null, null);
+            return;
+        }
+        job.started();
+        reportMetrics.add("export.jobs.queue.millis", job.getStartedAt() - job.getSubmittedAt());
+        ExportProgress previous = ExportProgress.bind(progress);
+        try {
+            Long reportId = pdfService.generatePdf(job.getTemplateId(), job.getFromDate(), job.getToDate(), job.getUsername(),
+                    job.getAssignedTo(), job.getAssignedApprover(), job.getMode(), job.getInterval(), job.getDownsampleMode());
+            job.finished(ExportJob.Status.DONE, reportId, null);
+            reportMetrics.increment("export.jobs.completed");
+            reportMetrics.recordRun("export.job", progress.getRowsFetched(), job.getFinishedAt() - job.getStartedAt());
+            log.info("Export job {} stored report {} in {} ms", job.getId(), reportId, job.getFinishedAt() - job.getStartedAt());
+        } catch (Exception e) {
+            // A cancelled statement surfaces as a SQL error, so the cancel flag decides the outcome
+            if (progress.isCancelled() || e instanceof CancellationException) {
+                job.finished(ExportJob.Status.CANCELLED, null, null);
+                reportMetrics.increment("export.jobs.cancelled");
+                log.info("Export job {} stopped after cancel", job.getId());
+            } else {
+                job.finished(ExportJob.Status.FAILED, null, e.getMessage());
+                reportMetrics.increment("export.jobs.failed");
+                log.error("Export job {} failed", job.getId(), e);
+            }
+        } finally {
+            ExportProgress.restore(previous);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${report.export.purge-ms:300000}", initialDelayString = "${report.export.purge-ms:300000}")
+    public void purgeFinished() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> job.getStatus().isFinished() && job.getFinishedAt() < cutoff);
+    }
+}
@@ -0,0 +1,128 @@
+package ncpl.bms.reports.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and cancellation of one export job. The job thread binds it for the duration of the
+ * export; the point reads and the PDF renderer report rows fetched and pages written into it, and
+ * register their running statements so a cancel can stop the query on the server.
+ */
+public class ExportProgress {
+
+    private static final ThreadLocal<ExportProgress> CURRENT = new ThreadLocal<>();
+
+    // Fetching is most of an export; rendering gets the rest of the percentage
+    private static final int FETCH_SHARE = 70;
+
+    private final AtomicLong rowsFetched = new AtomicLong();
+    private final AtomicLong expectedRows = new AtomicLong();
+    private volatile int pagesRendered;
+    private volatile int expectedPages;
+    private volatile boolean cancelled;
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+
+    public static ExportProgress current() {
+        return CURRENT.get();
+    }
+
+    // Binds the progress to the calling thread, returning the previous binding for restore()
+    public static ExportProgress bind(ExportProgress progress) {
+        ExportProgress previous = CURRENT.get();
+        CURRENT.set(progress);
+        return previous;
+    }
+
+    public static void restore(ExportProgress previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public void addExpectedRows(long rows) {
+        expectedRows.addAndGet(rows);
+    }
+
+    public void addRowsFetched(long rows) {
+        rowsFetched.addAndGet(rows);
+    }
+
+    public void expectPages(int pages) {
+        expectedPages = pages;
+    }
+
+    public void pageRendered(int page) {
+        pagesRendered = page;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched.get();
+    }
+
+    public long getExpectedRows() {
+        return expectedRows.get();
+    }
+
+    public int getPagesRendered() {
+        return pagesRendered;
+    }
+
+    public int getExpectedPages() {
+        return expectedPages;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Estimates only: expected rows come from the point statistics, so the fetch share is capped until rendering starts
+    public int getPercent() {
+        int fetch;
+        if (expectedPages > 0) {
+            fetch = FETCH_SHARE;
+        } else {
+            long expected = expectedRows.get();
+            fetch = expected <= 0 ? 0 : (int) Math.min(FETCH_SHARE - 1, rowsFetched.get() * FETCH_SHARE / expected);
+        }
+        int render = expectedPages <= 0 ? 0 : Math.min(100 - FETCH_SHARE, pagesRendered * (100 - FETCH_SHARE) / expectedPages);
+        return fetch + render;
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Export cancelled");
+        }
+    }
+
+    public void track(Statement statement) {
+        running.add(statement);
+        // A cancel that raced the registration still reaches the statement
+        if (cancelled) {
+            cancelStatement(statement);
+        }
+    }
+
+    public void untrack(Statement statement) {
+        running.remove(statement);
+    }
+
+    // Marks the export cancelled and cancels the statements it is running on the server
+    public void cancel() {
+        cancelled = true;
+        running.forEach(ExportProgress::cancelStatement);
+    }
+
+    private static void cancelStatement(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // Already finished or closed
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ncpl.bms.reports.service;
+
+import lombok.Getter;
+import ncpl.bms.reports.model.dao.TemplateParameter;
+
+/**
+ * One template parameter resolved once for rendering: the table it reads, its range (infinite
+ * bounds when unset) and the header label.
+ */
+@Getter
+public final class ParameterDescriptor {
+
+    private static final String TABLE_PREFIX = "SYNGENE_";
+
+    private final String parameter;
+    private final String baseColumn;
+    private final double from;
+    private final double to;
+    private final String unit;
+    private final String label;
+
+    private ParameterDescriptor(String parameter, String baseColumn, double from, double to, String unit, String label) {
+        this.parameter = parameter;
+        this.baseColumn = baseColumn;
+        this.from = from;
+        this.to = to;
+        this.unit = unit;
+        this.label = label;
+    }
+
+    public static ParameterDescriptor parse(String parameter) {
+        return of(TemplateParameter.parse(parameter));
+    }
+
+    public static ParameterDescriptor of(TemplateParameter parameter) {
+        String baseColumn = parameter.getName();
+        double from = Double.NEGATIVE_INFINITY;
+        double to = Double.POSITIVE_INFINITY;
+        if (parameter.getFrom() != null && parameter.getTo() != null) {
+            from = parameter.getFrom();
+            to = parameter.getTo();
+        }
+        String unit = parameter.getUnit() == null ? "" : parameter.getUnit();
+
+        // Header label: table name without the site prefix, unit in brackets when there is one
+        String name = baseColumn.startsWith(TABLE_PREFIX) ? baseColumn.substring(TABLE_PREFIX.length()) : baseColumn;
+        String label = unit.isEmpty() ? name : String.format("%s(%s)", name, unit);
+
+        return new ParameterDescriptor(parameter.toLegacyString(), baseColumn, from, to, unit, label);
+    }
+
+    public boolean hasRange() {
+        return from != Double.NEGATIVE_INFINITY && to != Double.POSITIVE_INFINITY;
+    }
+
+    // {from, to} as the report tables use it for colouring out-of-range cells
+    public double[] getRange() {
+        return new double[]{from, to};
+    }
+}
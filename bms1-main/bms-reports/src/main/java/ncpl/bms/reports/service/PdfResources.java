@@ -0,0 +1,73 @@
+package ncpl.bms.reports.service;
+
+import com.lowagie.text.BadElementException;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.BaseFont;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logo and fonts shared by every report PDF, loaded once at startup. logo() hands out copies of a
+ * single decoded image; copies keep the original's identity, so a document embeds the logo once
+ * however many pages show it. Fonts are cached per size/colour and must not be modified by callers.
+ */
+@Component
+@Slf4j
+public class PdfResources {
+
+    private static final String LOGO_PATH = "static/images/logo.png";
+
+    private Image logo;
+    private BaseFont helvetica;
+    private BaseFont helveticaBold;
+    private final Map<String, Font> fonts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void warm() throws IOException {
+        helvetica = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        helveticaBold = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+        try (InputStream in = new ClassPathResource(LOGO_PATH).getInputStream()) {
+            logo = Image.getInstance(in.readAllBytes());
+        } catch (IOException | BadElementException e) {
+            log.error("Error loading logo image {}", LOGO_PATH, e);
+        }
+    }
+
+    // Fresh copy the caller may scale and align; null when the logo could not be loaded
+    public Image logo() {
+        if (logo == null) {
+            return null;
+        }
+        try {
+            return Image.getInstance(logo);
+        } catch (BadElementException e) {
+            throw new RuntimeException("Error copying logo image", e);
+        }
+    }
+
+    public BaseFont getBaseFont(boolean bold) {
+        return bold ? helveticaBold : helvetica;
+    }
+
+    public Font font(float size) {
+        return font(false, size, null);
+    }
+
+    public Font boldFont(float size) {
+        return font(true, size, null);
+    }
+
+    public Font font(boolean bold, float size, Color color) {
+        String key = bold + ":" + size + ":" + (color == null ? "" : color.getRGB());
+        return fonts.computeIfAbsent(key, k -> new Font(getBaseFont(bold), size, Font.NORMAL, color));
+    }
+}
@@ -1,25 +1,26 @@
     package ncpl.bms.reports.service;
     import java.text.SimpleDateFormat;
     import java.util.*;
+    import java.time.Duration;
     import java.time.LocalDate;
     import java.time.format.DateTimeFormatter;
     import com.lowagie.text.Paragraph;
     import com.lowagie.text.*;
     import com.lowagie.text.pdf.*;
     import lombok.extern.slf4j.Slf4j;
-    import ncpl.bms.reports.model.dao.ReportTemplate;
     import ncpl.bms.reports.model.dto.GroupDTO;
     import ncpl.bms.reports.model.dto.ReportDTO;
     import ncpl.bms.reports.util.DateConverter;
+    import ncpl.bms.reports.util.PdfSpool;
     import org.springframework.beans.factory.annotation.Autowired;
     import org.springframework.beans.factory.annotation.Value;
-    import org.springframework.core.io.ClassPathResource;
     import org.springframework.stereotype.Component;
     import java.io.IOException;
+    import java.io.InputStream;
+    import java.io.OutputStream;
     import java.text.SimpleDateFormat;
     import java.util.Date;
     import com.lowagie.text.Document;
-    import java.util.regex.*;
     import com.lowagie.text.Element;
     import com.lowagie.text.PageSize;
     import com.lowagie.text.Phrase;
@@ -29,6 +30,8 @@
     import java.io.ByteArrayOutputStream;
     import java.sql.PreparedStatement;
     import org.springframework.jdbc.core.JdbcTemplate;
+    import org.springframework.jdbc.support.GeneratedKeyHolder;
+    import org.springframework.jdbc.support.KeyHolder;
     import java.time.LocalDateTime;
     import java.io.ByteArrayInputStream;
     import java.util.List;
@@ -41,6 +44,9 @@
         @Autowired
         private ReportDataService reportDataService;
 
+        @Autowired
+        private ReportCoalescer reportCoalescer;
+
         @Autowired
         private ReportTemplateService templateService;
 
@@ -56,10 +62,14 @@
         @Autowired
         private DateConverter dateConverter;
 
-        private List<Map<String, Object>> reportDataList = null;
+        @Autowired
+        private ReportMetrics reportMetrics;
+
+        @Autowired
+        private PdfResources pdfResources;
+
         public String getSubArea(Long templateId) {
-            String sql = "SELECT report_group FROM report_template WHERE id = ?";
-            return jdbcTemplate.queryForObject(sql, new Object[]{templateId}, String.class);
+            return templateService.getDescriptor(templateId).getReportGroup();
         }
 
         private String convertMillisToDate(Long millis) {
@@ -71,27 +81,19 @@
         }
 
         public String getReportName(Long templateId) {
-            String sql = "SELECT name FROM report_template WHERE id = ?";
-            return jdbcTemplate.queryForObject(sql, new Object[]{templateId}, String.class);
+            return templateService.getDescriptor(templateId).getName();
         }
         public String getDynamicReportHeading(Long templateId) {
             log.info("🔍 Starting getDynamicReportHeading for templateId = {}", templateId);
 
             try {
-                ReportTemplate template = templateService.getById(templateId);
-                List<String> parameters = template.getParameters();
-
-                log.info("🧩 Raw Parameters: {}", parameters);
-                if (parameters == null || parameters.isEmpty()) {
+                TemplateDescriptor template = templateService.getDescriptor(templateId);
+                if (template.getParameters().isEmpty()) {
                     log.warn("⚠️ No parameters found in template {}", templateId);
                     return "";
                 }
 
-                // Extract base parameters
-                List<String> baseParams = parameters.stream()
-                        .map(this::extractBaseParameter)
-                        .distinct()
-                        .toList();
+                List<String> baseParams = template.getBaseColumns();
 
                 log.info("🧩 Base Parameter Names: {}", baseParams);
 
@@ -139,7 +141,7 @@
             legendTable.setHorizontalAlignment(Element.ALIGN_LEFT);
             legendTable.setWidths(new int[]{1, 4}); // 1 part color box, 4 part text
 
-            Font labelFont = FontFactory.getFont(FontFactory.HELVETICA, 9, Font.NORMAL);
+            Font labelFont = pdfResources.font(9);
 
             addLegendItem(legendTable, Color.RED, "Above Range");
             addLegendItem(legendTable, Color.white, "Within Range");
@@ -156,86 +158,69 @@
             colorCell.setBorder(Rectangle.NO_BORDER);
             table.addCell(colorCell);
 
-            PdfPCell labelCell = new PdfPCell(new Phrase(label, FontFactory.getFont(FontFactory.HELVETICA, 9)));
+            PdfPCell labelCell = new PdfPCell(new Phrase(label, pdfResources.font(9)));
             labelCell.setBorder(Rectangle.NO_BORDER);
             labelCell.setVerticalAlignment(Element.ALIGN_MIDDLE);
             table.addCell(labelCell);
         }
 
-        public Map<String, Map<String, Map<String, Object>>> calculateStatistics(Long templateId, String fromDate, String toDate) {
-            List<Map<String, Object>> data = reportDataService.generateReportData(templateId, fromDate, toDate);
-
-            Map<String, Map<String, Map<String, Object>>> result = new LinkedHashMap<>();
-
-            for (String key : data.get(0).keySet()) {
-                if (key.equalsIgnoreCase("timestamp")) continue;
-
-                double maxVal = Double.NEGATIVE_INFINITY;
-                double minVal = Double.POSITIVE_INFINITY;
-                long maxTime = 0L, minTime = 0L;
-                double total = 0;
-                int count = 0;
-
-                for (Map<String, Object> row : data) {
-                    Object valObj = row.get(key);
-                    Object timeObj = row.get("timestamp");
-
-                    if (valObj == null || timeObj == null) continue;
-
-                    try {
-                        double val = Double.parseDouble(valObj.toString());
-                        long time = Long.parseLong(timeObj.toString());
-
-                        if (val > maxVal) {
-                            maxVal = val;
-                            maxTime = time;
-                        }
-                        if (val < minVal) {
-                            minVal = val;
-                            minTime = time;
-                        }
+        public void generatePdf(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver) throws Exception {
+            generatePdf(templateId, fromDateTime, toDate, username, assignedTo, assigned_approver, reportDataService.resolveMode(null));
+        }
 
-                        total += val;
-                        count++;
-                    } catch (Exception e) {
-                        // skip bad data
-                    }
-                }
+        public void generatePdf(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver, ReportGenerationMode mode) throws Exception {
+            generatePdf(templateId, fromDateTime, toDate, username, assignedTo, assigned_approver, mode, null);
+        }
 
-                Map<String, Map<String, Object>> statMap = new LinkedHashMap<>();
-                Map<String, Object> maxMap = new HashMap<>();
-                Map<String, Object> minMap = new HashMap<>();
-                Map<String, Object> avgMap = new HashMap<>();
+        // A non-null interval lets the report be served from hourly/daily rollups when they fit the range
+        public void generatePdf(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver, ReportGenerationMode mode, Duration interval) throws Exception {
+            generatePdf(templateId, fromDateTime, toDate, username, assignedTo, assigned_approver, mode, interval, reportDataService.resolveDownsampleMode(null));
+        }
 
-                if (count > 0) {
-                    maxMap.put("value", (int) maxVal);
-                    maxMap.put("timestamp", maxTime);
+        /**
+         * Returns the stored_reports id of the report. The same export repeated by the same user for the same
+         * assignees within report.coalesce.report-ttl, or while the first one runs, returns the first one's id.
+         */
+        public Long generatePdf(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver,
+                                ReportGenerationMode mode, Duration interval, DownsampleMode downsampleMode) throws Exception {
+            List<Object> key = new ArrayList<>(ReportCoalescer.frameKey(templateId, fromDateTime, toDate, mode, interval, downsampleMode));
+            key.addAll(Arrays.asList(username, assignedTo, assigned_approver));
+            return reportCoalescer.storedReport(key, () ->
+                    renderAndStore(templateId, fromDateTime, toDate, username, assignedTo, assigned_approver, mode, interval, downsampleMode));
+        }
 
-                    minMap.put("value", (int) minVal);
-                    minMap.put("timestamp", minTime);
+        private Long renderAndStore(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver,
+                                    ReportGenerationMode mode, Duration interval, DownsampleMode downsampleMode) throws Exception {
+            ReportFrame frame = reportDataService.generateReportFrame(templateId, fromDateTime, toDate, mode, interval, downsampleMode);
 
-                    avgMap.put("value", (int) (total / count));
-                }
-                statMap.put("max", maxMap);
-                statMap.put("min", minMap);
-                statMap.put("avg", avgMap);
-                result.put(key, statMap);
+            try (PdfSpool spool = PdfSpool.create()) {
+                renderReport(frame, templateId, fromDateTime, toDate, username, spool.getOutputStream(), true);
+                return storeReport(templateId, fromDateTime, toDate, username, assignedTo, assigned_approver, spool);
             }
+        }
 
-            return result;
+        // Writes the report straight to the given stream (e.g. the HTTP response) without storing it; the stream is left open
+        public void streamPdf(Long templateId, String fromDateTime, String toDate, String username, ReportGenerationMode mode,
+                              Duration interval, DownsampleMode downsampleMode, OutputStream out) throws Exception {
+            ReportFrame frame = reportDataService.generateReportFrame(templateId, fromDateTime, toDate, mode, interval, downsampleMode);
+            renderReport(frame, templateId, fromDateTime, toDate, username, out, false);
         }
 
-        public void generatePdf(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver) throws Exception {
-            reportDataList = reportDataService.generateReportData(templateId, fromDateTime, toDate);
+        public String getReportFileName(Long templateId) {
+            return getDynamicReportHeading(templateId).replaceAll("[^a-zA-Z0-9]", "_") + ".pdf";
+        }
 
+        // Pages are flushed to the output as each 20-row table is added, so memory does not grow with the page count
+        private void renderReport(ReportFrame frame, Long templateId, String fromDateTime, String toDate, String username, OutputStream out, boolean closeStream) throws Exception {
+            long started = System.currentTimeMillis();
             // Convert the date range to 'dd-MM-yyyy HH:mm:ss' format
             SimpleDateFormat dateTimeFormatter = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
             String formattedFromDateTime = dateTimeFormatter.format(new Date(Long.parseLong(fromDateTime)));
             String formattedToDateTime = dateTimeFormatter.format(new Date(Long.parseLong(toDate)));
 
             Document document = new Document(PageSize.A4.rotate());
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            PdfWriter writer = PdfWriter.getInstance(document, byteArrayOutputStream);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(closeStream);
 
             // Use TablePageEvent if required for header/footer
             TablePageEvent event = new TablePageEvent(formattedFromDateTime, formattedToDateTime, username, templateId, this);
@@ -244,73 +229,66 @@
             document.open();
 
 
-            Map<String, Object> stringObjectMap = reportDataList.get(0);
-            int columnCount = stringObjectMap.size();
+            int columnCount = frame.columnCount() + 1; // timestamp + parameters
             int rowCount = 0;
             int rowsPerPage = 20;
-            Map<String, Map<String, Map<String, Object>>> statistics = calculateStatistics(templateId, fromDateTime, toDate);
+            // Export jobs report pages written: one per 20 rows plus the statistics page
+            ExportProgress progress = ExportProgress.current();
+            if (progress != null) {
+                progress.expectPages((frame.rowCount() + rowsPerPage - 1) / rowsPerPage + 1);
+            }
+            Map<String, Map<String, Map<String, Object>>> statistics = reportDataService.calculateStatistics(frame);
 
-            PdfPTable table = new PdfPTable(stringObjectMap.size());
+            PdfPTable table = new PdfPTable(columnCount);
             table.setWidthPercentage(100f);
             table.setSpacingBefore(5);
 
-            PdfPCell cell = new PdfPCell();
-            addTableHeader(templateId, stringObjectMap, table);
-
-            System.out.println("Fetching ReportTemplate for templateId: " + templateId);
-            // Extract "From" and "To" values for each parameter
-            Map<String, String> formattedParameterRanges = extractFormattedParameterRanges(templateId);
-
-            Map<String, double[]> parameterRanges = extractParameterRanges(templateId);
-            rowCount = 0; // Reset row counter
-
-            for (Map<String, Object> map : reportDataList) {
-                for (Map.Entry<String, Object> entry : map.entrySet()) {
-                    Object rawValue = entry.getValue();
-                    String valueStr;
-
-                    if (rawValue == null || rawValue.toString().trim().isEmpty() || "null".equalsIgnoreCase(rawValue.toString())) {
-                        valueStr = "null"; // display literal 'null'
-                    } else {
-                        valueStr = rawValue.toString();
-                    }
+            addTableHeader(templateId, table);
 
+            log.debug("Fetching ReportTemplate for templateId: {}", templateId);
+            TemplateDescriptor template = templateService.getDescriptor(templateId);
+            double[][] columnRanges = new double[frame.columnCount()][];
+            for (int c = 0; c < frame.columnCount(); c++) {
+                ParameterDescriptor parameter = template.getParameter(frame.getColumns().get(c));
+                columnRanges[c] = parameter == null ? null : parameter.getRange();
+            }
 
-                    // Handle timestamp
-                    if (entry.getKey().equalsIgnoreCase("timestamp")) {
-                        try {
-                            valueStr = convertMillisToDate(Long.parseLong(valueStr));
-                        } catch (Exception ignored) {}
-                    }
+            for (int row = 0; row < frame.rowCount(); row++) {
+                PdfPCell timeCell = new PdfPCell(new Phrase(convertMillisToDate(frame.timestamp(row))));
+                timeCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+                table.addCell(timeCell);
 
-                    PdfPCell valueCell = new PdfPCell(new Phrase(valueStr));
+                for (int c = 0; c < frame.columnCount(); c++) {
+                    PdfPCell valueCell = new PdfPCell(new Phrase(frame.format(row, c)));
                     valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
 
                     // Conditional coloring
-                    try {
-                        double value = Double.parseDouble(valueStr);
-                        double[] range = parameterRanges.get(extractBaseParameter(entry.getKey()));
-                        if (range != null) {
-                            double from = range[0], to = range[1];
-                            if (value > to) valueCell.setBackgroundColor(CMYKColor.RED);
-                            else if (value < from) valueCell.setBackgroundColor(CMYKColor.CYAN);
-                        }
-                    } catch (NumberFormatException ignored) {}
+                    double[] range = columnRanges[c];
+                    if (range != null && !frame.isNull(row, c)) {
+                        double value = frame.value(row, c);
+                        double from = range[0], to = range[1];
+                        if (value > to) valueCell.setBackgroundColor(CMYKColor.RED);
+                        else if (value < from) valueCell.setBackgroundColor(CMYKColor.CYAN);
+                    }
 
                     table.addCell(valueCell);
                 }
 
                 rowCount++;
 
-                if (rowCount % rowsPerPage == 0 && rowCount != reportDataList.size()) {
+                if (rowCount % rowsPerPage == 0 && rowCount != frame.rowCount()) {
                     document.add(table);  // Add current table to PDF
                     document.newPage();   // Start a new page
+                    if (progress != null) {
+                        progress.pageRendered(writer.getPageNumber() - 1);
+                        progress.checkCancelled();
+                    }
 
                     // Reinitialize table and add header again
                     table = new PdfPTable(columnCount);
                     table.setWidthPercentage(100f);
                     table.setSpacingBefore(5);
-                    addTableHeader(templateId, stringObjectMap, table);
+                    addTableHeader(templateId, table);
                 }
             }
 
@@ -331,10 +309,13 @@
     //        document.add(statsTitle);
 
     // Add headers + stat rows
-            addTableHeader(templateId, stringObjectMap, statisticsTable);
+            addTableHeader(templateId, statisticsTable);
             addStatisticsRow("Max", statistics, statisticsTable);
             addStatisticsRow("Min", statistics, statisticsTable);
             addStatisticsRow("Avg", statistics, statisticsTable);
+            addStatisticsRow("StdDev", statistics, statisticsTable);
+            addStatisticsRow("P95", statistics, statisticsTable);
+            addStatisticsRow("P99", statistics, statisticsTable);
 
     // ✅ Add the final stats table to document
             document.add(statisticsTable);
@@ -342,11 +323,21 @@
             addColorLegend(document);
 
     // ✅ NOW close the document
+            int pages = writer.getPageNumber();
             document.close();
+            if (progress != null) {
+                progress.pageRendered(pages);
+            }
+
+            // Pages and render time per report, to compare raw against downsampled exports
+            long elapsed = System.currentTimeMillis() - started;
+            reportMetrics.add("pdf.pages", pages);
+            reportMetrics.recordRun("pdf", frame.rowCount(), elapsed);
+            log.info("Rendered template {}: {} rows on {} pages in {} ms", templateId, frame.rowCount(), pages, elapsed);
+        }
 
-            String dynamicHeading = getDynamicReportHeading(templateId);
-            String cleanHeading = dynamicHeading.replaceAll("[^a-zA-Z0-9]", "_");
-            String pdfFileName = cleanHeading + ".pdf";
+        private Long storeReport(Long templateId, String fromDateTime, String toDate, String username, String assignedTo, String assigned_approver, PdfSpool spool) throws IOException {
+            String pdfFileName = getReportFileName(templateId);
             Date currentDate = new Date(Calendar.getInstance().getTimeInMillis());
             long currentTimeMillis = currentDate.getTime();
             String currentDateStr = Long.toString(currentTimeMillis);
@@ -355,21 +346,28 @@
             int chk = (assigned_approver == null || assigned_approver.trim().isEmpty()) ? 0 : 1;
             // Insert the PDF into the database using JdbcTemplate
             String sql = "INSERT INTO stored_reports (name, from_date, to_date, pdf_data, generated_by, generated_date, assigned_review, assigned_approver, is_approver_required) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setString(1, pdfFileName);  // Set the formatted file name
-                ps.setString(2, fromDateTime);
-                ps.setString(3, toDate);
-                ps.setBytes(4, byteArrayOutputStream.toByteArray());
-                ps.setString(5, username);
-                ps.setString(6, currentDateStr);
-                ps.setString(7, assignedTo);
-                ps.setString(8, assigned_approver);
-                log.info("APPROVER IS {}", assigned_approver);
-                log.info("chk is {} " ,chk);
-                ps.setBoolean(9, chk==1);
-                return ps;
-            });
+            long pdfLength = spool.length();
+            reportMetrics.add("pdf.bytes", pdfLength);
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            try (InputStream pdfData = spool.openInputStream()) {
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
+                    ps.setString(1, pdfFileName);  // Set the formatted file name
+                    ps.setString(2, fromDateTime);
+                    ps.setString(3, toDate);
+                    ps.setBinaryStream(4, pdfData, pdfLength);
+                    ps.setString(5, username);
+                    ps.setString(6, currentDateStr);
+                    ps.setString(7, assignedTo);
+                    ps.setString(8, assigned_approver);
+                    log.info("APPROVER IS {}", assigned_approver);
+                    log.info("chk is {} " ,chk);
+                    ps.setBoolean(9, chk==1);
+                    return ps;
+                }, keyHolder);
+            }
+            Number id = keyHolder.getKey();
+            return id == null ? null : id.longValue();
         }
 
 
@@ -393,77 +391,13 @@
     //        return base;
     //    }
 
-        private Map<String, String> extractFormattedParameterRanges(Long templateId) {
-            ReportTemplate template = templateService.getById(templateId);
-            if (template == null) {
-                throw new RuntimeException("ReportTemplate not found for templateId: " + templateId);
-            }
-
-            List<String> parameters = template.getParameters();
-            if (parameters == null || parameters.isEmpty()) {
-                throw new RuntimeException("No parameters found for templateId: " + templateId);
-            }
-
-            Map<String, String> formattedParameterRanges = new HashMap<>();
-
-            for (String parameter : parameters) {
-                String baseName = extractBaseParameter(parameter);
-                if (baseName.startsWith("SYNGENE_")) {
-                    baseName = baseName.substring("SYNGENE_".length());
-                }
-                String unit = extractUnit(parameter);
-
-                String formatted = unit.isEmpty() ? baseName : String.format("%s(%s)", baseName, unit);
-                formattedParameterRanges.put(parameter, formatted);
-            }
-            return formattedParameterRanges;
-        }
-
-        private String removeSuffix(String columnName) {
-            if (columnName.contains("_From_")) {
-                return columnName.substring(0, columnName.indexOf("_From_"));
-            }
-            return columnName;
-        }
-
-        private static final Pattern RANGE_PATTERN = Pattern.compile("_From_(\\d+(?:\\.\\d+)?)_To_(\\d+(?:\\.\\d+)?)");
-        private static final Pattern UNIT_PATTERN = Pattern.compile("_Unit_([a-zA-Z]+)$");
-
-        private double getFromValue(String paramName) {
-            Matcher matcher = RANGE_PATTERN.matcher(paramName);
-            if (matcher.find()) {
-                return Double.parseDouble(matcher.group(1));
-            }
-            return Double.NEGATIVE_INFINITY;
-        }
-
-
-        private double getToValue(String paramName) {
-            Matcher matcher = RANGE_PATTERN.matcher(paramName);
-            if (matcher.find()) {
-                return Double.parseDouble(matcher.group(2));
-            }
-            return Double.POSITIVE_INFINITY;
-        }
-
-        private String extractUnit(String paramName) {
-            Matcher matcher = UNIT_PATTERN.matcher(paramName);
-            if (matcher.find()) {
-                return matcher.group(1);
-            }
-            return "";
-        }
-        private String extractBaseParameter(String columnName) {
-            return columnName.replaceAll("(_From_.*|_Unit_.*)$", "");
-        }
-
-
         private void addStatisticsRow(String label, Map<String, Map<String, Map<String, Object>>> statistics, PdfPTable table) {
-            Font fontBold = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-            Font fontNormal = FontFactory.getFont(FontFactory.HELVETICA, 9);
+            Font fontBold = pdfResources.boldFont(10);
+            Font fontNormal = pdfResources.font(9);
             List<String> parameterKeys = new ArrayList<>(statistics.keySet());
 
-            boolean hasTimestamp = !label.equalsIgnoreCase("Avg");
+            // Only Max and Min happened at a particular time
+            boolean hasTimestamp = label.equalsIgnoreCase("Max") || label.equalsIgnoreCase("Min");
 
             // Label cell
             PdfPCell labelCell = new PdfPCell(new Phrase(label, fontBold));
@@ -515,31 +449,29 @@
             }
         }
 
-        private void addTableHeader(Long templateId, Map<String, Object> stringObjectMap, PdfPTable table) {
-            Font font = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, CMYKColor.BLACK);
+        private void addTableHeader(Long templateId, PdfPTable table) {
+            Font font = pdfResources.font(true, 10, CMYKColor.BLACK);
             PdfPCell cell = new PdfPCell();
             cell.setBackgroundColor(CMYKColor.GRAY);
             cell.setPadding(5);
             cell.setHorizontalAlignment(Element.ALIGN_CENTER);
 
-            ReportTemplate template = templateService.getById(templateId);
-            Map<String, String> formattedParameters = extractFormattedParameterRanges(templateId);
+            TemplateDescriptor template = templateService.getDescriptor(templateId);
+            if (template.getParameters().isEmpty()) {
+                throw new RuntimeException("No parameters found for templateId: " + templateId);
+            }
 
             // Timestamp header
             cell.setPhrase(new Phrase("Timestamp", font));
             table.addCell(cell);
 
             // Parameter headers with range only if explicitly set
-            for (String parameter : template.getParameters()) {
-                String baseFormattedName = formattedParameters.get(parameter);
-                double fromValue = getFromValue(parameter);
-                double toValue = getToValue(parameter);
-
-                String headerText = baseFormattedName;
+            for (ParameterDescriptor parameter : template.getParameters()) {
+                String headerText = parameter.getLabel();
 
                 // Only add range if explicitly provided
-                if (fromValue != Double.NEGATIVE_INFINITY && toValue != Double.POSITIVE_INFINITY) {
-                    headerText += String.format("\nRange: %.0f - %.0f", fromValue, toValue);
+                if (parameter.hasRange()) {
+                    headerText += String.format("\nRange: %.0f - %.0f", parameter.getFrom(), parameter.getTo());
                 }
 
                 cell.setPhrase(new Phrase(headerText, font));
@@ -558,6 +490,10 @@
             private final PdfService pdfService;
             private String reviewedBy = "";
             private String reviewDate = "";
+            // Header values are resolved once per document; the rendered header block is reused on every page
+            private final String subArea;
+            private final String dynamicHeading;
+            private Image headerImage;
 
 
             public TablePageEvent(String fromDateTime, String toDateTime, String username, Long templateId, PdfService pdfService) {
@@ -566,6 +502,8 @@
                 this.username = username;
                 this.templateId = templateId;
                 this.pdfService = pdfService;
+                this.subArea = pdfService.getSubArea(templateId);
+                this.dynamicHeading = pdfService.getDynamicReportHeading(templateId);
                 try {
                     ReportDTO latestReport = pdfService.findLatestGeneratedReport(templateId, fromDateTime, toDateTime, username);
                     if (latestReport != null) {
@@ -582,117 +520,127 @@
             @Override
             public void onStartPage(PdfWriter writer, Document document) {
                 try {
-                    Font fontTitle = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 13);
-                    Font fontContent = FontFactory.getFont(FontFactory.HELVETICA, 11);
-
-                    PdfPTable headerTable = new PdfPTable(3);
-                    headerTable.setWidthPercentage(100);
-                    float[] columnWidths = {20f, 60f, 20f};
-                    headerTable.setWidths(columnWidths);
-
-                    // Fetch dynamic values
-                    String subArea = pdfService.getSubArea(templateId);
-
-                    // Extract parameter ranges dynamically
-                    Map<String, String> formattedParameterRanges = extractFormattedParameterRanges(templateId);
-
-                    // Format the extracted parameter ranges as a string
-                    //                StringBuilder rangeText = new StringBuilder("\nRanges:");
-                    //                for (Map.Entry<String, double[]> entry : parameterRanges.entrySet()) {
-                    //                    rangeText.append("[").append((int) entry.getValue()[0]).append(" - ").append((int) entry.getValue()[1]).append("]\n");
-                    //
-                    //                }
-
-
-                    // Logo Cell - Left Aligned
-                    PdfPCell cell1 = new PdfPCell();
-                    try {
-                        Image image = Image.getInstance(new ClassPathResource("static/images/logo.png").getURL());
-                        image.scaleToFit(100, 70);
-                        image.setAlignment(Element.ALIGN_LEFT);
-                        cell1.addElement(image);
-                    } catch (IOException e) {
-                        throw new RuntimeException("Error loading logo image", e);
+                    if (headerImage == null) {
+                        headerImage = createHeaderImage(writer, document);
                     }
-                    cell1.setBorder(Rectangle.NO_BORDER);
-                    cell1.setPaddingLeft(5);
-                    cell1.setVerticalAlignment(Element.ALIGN_MIDDLE);
-
-                    // Address Cell - Center Aligned
-                    PdfPCell cell2 = new PdfPCell(new Paragraph(address, fontTitle));
-                    cell2.setBorder(Rectangle.NO_BORDER);
-                    cell2.setHorizontalAlignment(Element.ALIGN_CENTER);
-                    cell2.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                    cell2.setPadding(5);
-
-                    PdfPCell cell3 = new PdfPCell(new Paragraph(""));
-                    cell3.setBorder(Rectangle.NO_BORDER);
-
-                    String dynamicHeading = pdfService.getDynamicReportHeading(templateId);
-                    PdfPCell cell4 = new PdfPCell(new Paragraph(dynamicHeading, fontTitle));
-
-                    cell4.setBorder(Rectangle.NO_BORDER);
-                    cell4.setHorizontalAlignment(Element.ALIGN_CENTER);
-                    cell4.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                    cell4.setColspan(3);
-                    cell4.setPaddingTop(5);
-                    cell4.setPaddingBottom(10);
-
-                    // Left Section - Start Date, Start Time, Area, Sub Area (Dynamic)
-                    PdfPCell cell5 = new PdfPCell();
-                    DateTimeFormatter inputFormat = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-                    DateTimeFormatter desiredDateFormat = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
-                    DateTimeFormatter desiredTimeFormat = DateTimeFormatter.ofPattern("HH:mm:ss");
-
-                    LocalDateTime fromDate = LocalDateTime.parse(fromDateTime, inputFormat);
-                    String displayStartDate = fromDate.format(desiredDateFormat); // 21-Mar-2025
-                    String displayStartTime = fromDate.format(desiredTimeFormat); // 10:30:00
-
-                    Paragraph paragraph5 = new Paragraph(
-                            "Start Date: " + displayStartDate +
-                                    "\nStart Time: " + displayStartTime +
-                                    "\nArea: S20A" +
-                                    "\nSub Area: " + subArea, fontContent);
-
-                    paragraph5.setLeading(12f, 0f);
-                    cell5.addElement(paragraph5);
-                    cell5.setBorder(Rectangle.NO_BORDER);
-                    cell5.setHorizontalAlignment(Element.ALIGN_LEFT);
-                    cell5.setPaddingLeft(5);
-                    cell5.setNoWrap(true);
-
-                    PdfPCell emptyCell = new PdfPCell(new Paragraph(""));
-                    emptyCell.setBorder(Rectangle.NO_BORDER);
-
-
-                    LocalDateTime toDate = LocalDateTime.parse(toDateTime, inputFormat);
-                    String displayEndDate = toDate.format(desiredDateFormat); // e.g. 21-Mar-2025
-                    String displayEndTime = toDate.format(desiredTimeFormat); // e.g. 18:45:00
-
-                    PdfPCell cell6 = new PdfPCell(new Paragraph(
-                            "End Date: " + displayEndDate +
-                                    "\nEnd Time: " + displayEndTime
-                    ));
-
-                    cell6.setBorder(Rectangle.NO_BORDER);
-                    cell6.setHorizontalAlignment(Element.ALIGN_RIGHT);
-                    cell6.setPaddingRight(5);
-
-                    headerTable.addCell(cell1);
-                    headerTable.addCell(cell2);
-                    headerTable.addCell(cell3);
-                    headerTable.addCell(cell4);
-                    headerTable.addCell(cell5);
-                    headerTable.addCell(emptyCell);
-                    headerTable.addCell(cell6);
-
-                    document.add(headerTable);
-
+                    // Every page references the same form XObject instead of re-laying out the header table
+                    document.add(headerImage);
                 } catch (DocumentException e) {
                     throw new RuntimeException("Error creating header", e);
                 }
             }
 
+            private Image createHeaderImage(PdfWriter writer, Document document) throws DocumentException {
+                PdfPTable headerTable = createHeaderTable();
+                float width = document.right() - document.left();
+                headerTable.setTotalWidth(width);
+                headerTable.setLockedWidth(true);
+                float height = headerTable.getTotalHeight();
+
+                PdfTemplate template = writer.getDirectContent().createTemplate(width, height);
+                headerTable.writeSelectedRows(0, -1, 0, height, template);
+                return Image.getInstance(template);
+            }
+
+            private PdfPTable createHeaderTable() throws DocumentException {
+                Font fontTitle = pdfResources.boldFont(13);
+                Font fontContent = pdfResources.font(11);
+
+                PdfPTable headerTable = new PdfPTable(3);
+                headerTable.setWidthPercentage(100);
+                float[] columnWidths = {20f, 60f, 20f};
+                headerTable.setWidths(columnWidths);
+
+                // Format the extracted parameter ranges as a string
+                //                StringBuilder rangeText = new StringBuilder("\nRanges:");
+                //                for (Map.Entry<String, double[]> entry : parameterRanges.entrySet()) {
+                //                    rangeText.append("[").append((int) entry.getValue()[0]).append(" - ").append((int) entry.getValue()[1]).append("]\n");
+                //
+                //                }
+
+
+                // Logo Cell - Left Aligned
+                PdfPCell cell1 = new PdfPCell();
+                Image image = pdfResources.logo();
+                if (image != null) {
+                    image.scaleToFit(100, 70);
+                    image.setAlignment(Element.ALIGN_LEFT);
+                    cell1.addElement(image);
+                }
+                cell1.setBorder(Rectangle.NO_BORDER);
+                cell1.setPaddingLeft(5);
+                cell1.setVerticalAlignment(Element.ALIGN_MIDDLE);
+
+                // Address Cell - Center Aligned
+                PdfPCell cell2 = new PdfPCell(new Paragraph(address, fontTitle));
+                cell2.setBorder(Rectangle.NO_BORDER);
+                cell2.setHorizontalAlignment(Element.ALIGN_CENTER);
+                cell2.setVerticalAlignment(Element.ALIGN_MIDDLE);
+                cell2.setPadding(5);
+
+                PdfPCell cell3 = new PdfPCell(new Paragraph(""));
+                cell3.setBorder(Rectangle.NO_BORDER);
+
+                PdfPCell cell4 = new PdfPCell(new Paragraph(dynamicHeading, fontTitle));
+
+                cell4.setBorder(Rectangle.NO_BORDER);
+                cell4.setHorizontalAlignment(Element.ALIGN_CENTER);
+                cell4.setVerticalAlignment(Element.ALIGN_MIDDLE);
+                cell4.setColspan(3);
+                cell4.setPaddingTop(5);
+                cell4.setPaddingBottom(10);
+
+                // Left Section - Start Date, Start Time, Area, Sub Area (Dynamic)
+                PdfPCell cell5 = new PdfPCell();
+                DateTimeFormatter inputFormat = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+                DateTimeFormatter desiredDateFormat = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+                DateTimeFormatter desiredTimeFormat = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+                LocalDateTime fromDate = LocalDateTime.parse(fromDateTime, inputFormat);
+                String displayStartDate = fromDate.format(desiredDateFormat); // 21-Mar-2025
+                String displayStartTime = fromDate.format(desiredTimeFormat); // 10:30:00
+
+                Paragraph paragraph5 = new Paragraph(
+                        "Start Date: " + displayStartDate +
+                                "\nStart Time: " + displayStartTime +
+                                "\nArea: S20A" +
+                                "\nSub Area: " + subArea, fontContent);
+
+                paragraph5.setLeading(12f, 0f);
+                cell5.addElement(paragraph5);
+                cell5.setBorder(Rectangle.NO_BORDER);
+                cell5.setHorizontalAlignment(Element.ALIGN_LEFT);
+                cell5.setPaddingLeft(5);
+                cell5.setNoWrap(true);
+
+                PdfPCell emptyCell = new PdfPCell(new Paragraph(""));
+                emptyCell.setBorder(Rectangle.NO_BORDER);
+
+
+                LocalDateTime toDate = LocalDateTime.parse(toDateTime, inputFormat);
+                String displayEndDate = toDate.format(desiredDateFormat); // e.g. 21-Mar-2025
+                String displayEndTime = toDate.format(desiredTimeFormat); // e.g. 18:45:00
+
+                PdfPCell cell6 = new PdfPCell(new Paragraph(
+                        "End Date: " + displayEndDate +
+                                "\nEnd Time: " + displayEndTime
+                ));
+
+                cell6.setBorder(Rectangle.NO_BORDER);
+                cell6.setHorizontalAlignment(Element.ALIGN_RIGHT);
+                cell6.setPaddingRight(5);
+
+                headerTable.addCell(cell1);
+                headerTable.addCell(cell2);
+                headerTable.addCell(cell3);
+                headerTable.addCell(cell4);
+                headerTable.addCell(cell5);
+                headerTable.addCell(emptyCell);
+                headerTable.addCell(cell6);
+
+                return headerTable;
+            }
+
             @Override
             public void onEndPage(PdfWriter writer, Document document) {
                 PdfPTable footerTable = new PdfPTable(2);
@@ -702,7 +650,7 @@
                 } catch (DocumentException e) {
                     throw new RuntimeException(e);
                 }
-                Font fontTitle = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+                Font fontTitle = pdfResources.boldFont(10);
                 LocalDateTime currentDate = LocalDateTime.now();
                 DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d-MMMM-yyyy HH:mm:ss");
 
@@ -813,7 +761,7 @@
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d-MMMM-yyyy HH:mm:ss");
             String formattedDate = now.format(formatter);
 
-            Font font = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+            Font font = pdfResources.boldFont(10);
             PdfPTable reviewTable = new PdfPTable(1);
             reviewTable.setTotalWidth(180);
             reviewTable.setWidthPercentage(100);
@@ -860,7 +808,7 @@
             approvalTable.setTotalWidth(180); // Set fixed width
             approvalTable.setWidthPercentage(100);
 
-            Font fontTitle = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+            Font fontTitle = pdfResources.boldFont(10);
 
             // Get the current date
             LocalDateTime currentDateTime = LocalDateTime.now();
@@ -908,19 +856,6 @@
             stampReviewInfo(reportId, username);
         }
 
-        private Map<String, double[]> extractParameterRanges(Long templateId) {
-            ReportTemplate template = templateService.getById(templateId);
-            Map<String, double[]> parameterRanges = new HashMap<>();
-
-            for (String parameter : template.getParameters()) {
-                String cleanParameter = extractBaseParameter(parameter); // same as you're already using
-                double fromValue = getFromValue(parameter);
-                double toValue = getToValue(parameter);
-                parameterRanges.put(cleanParameter, new double[]{fromValue, toValue});
-            }
-
-            return parameterRanges;
-        }
         public ReportDTO findLatestGeneratedReport(Long templateId, String fromDateTime, String toDateTime, String generatedBy) {
             String templateName = getReportName(templateId).replaceAll("[^a-zA-Z0-9]", "_");
             String likeName = templateName + "%";
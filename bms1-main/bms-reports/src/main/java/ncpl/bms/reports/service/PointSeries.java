@@ -0,0 +1,51 @@
+package ncpl.bms.reports.service;
+
+import java.util.Arrays;
+
+/**
+ * Samples of a single point table ordered by timestamp, kept in primitive arrays.
+ * A null sample is stored as NaN.
+ */
+public class PointSeries {
+
+    private final String name;
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    public PointSeries(String name, int initialCapacity) {
+        this.name = name;
+        this.timestamps = new long[Math.max(initialCapacity, 16)];
+        this.values = new double[timestamps.length];
+    }
+
+    public void add(long timestamp, Number value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestamp;
+        values[size] = value == null ? Double.NaN : value.doubleValue();
+        size++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    public boolean isNull(int index) {
+        return Double.isNaN(values[index]);
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+}
@@ -0,0 +1,75 @@
+package ncpl.bms.reports.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Point series shared by the reports of one scheduled run. While a batch is bound, every read of
+ * a point for a window goes through it, so a point used by many templates due at the same time is
+ * fetched once and the other reports wait for and reuse that fetch. Series are read-only once
+ * fetched; the batch is released when the run's reports are done.
+ */
+public class PointSeriesBatch {
+
+    private static final ThreadLocal<PointSeriesBatch> CURRENT = new ThreadLocal<>();
+
+    private final Map<List<Object>, CompletableFuture<PointSeries>> series = new ConcurrentHashMap<>();
+
+    public static PointSeriesBatch current() {
+        return CURRENT.get();
+    }
+
+    public static PointSeriesBatch bind(PointSeriesBatch batch) {
+        PointSeriesBatch previous = CURRENT.get();
+        CURRENT.set(batch);
+        return previous;
+    }
+
+    public static void restore(PointSeriesBatch previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    // Returns the shared series, fetching it with the loader when this is the first request for it
+    public PointSeries get(String table, long fromMillis, long toMillis, Supplier<PointSeries> loader) {
+        CompletableFuture<PointSeries> fetch = new CompletableFuture<>();
+        CompletableFuture<PointSeries> shared = series.putIfAbsent(Arrays.asList(table, fromMillis, toMillis), fetch);
+        if (shared == null) {
+            try {
+                PointSeries loaded = loader.get();
+                fetch.complete(loaded);
+                return loaded;
+            } catch (RuntimeException e) {
+                // A failed or cancelled fetch is not shared; the next report reads the point itself
+                series.remove(Arrays.asList(table, fromMillis, toMillis), fetch);
+                fetch.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return shared.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a shared point fetch", e);
+        } catch (ExecutionException e) {
+            // The fetching report failed or was stopped by its own timeout; this one reads the point itself
+            return loader.get();
+        }
+    }
+
+    public int size() {
+        return series.size();
+    }
+
+    public void release() {
+        series.clear();
+    }
+}
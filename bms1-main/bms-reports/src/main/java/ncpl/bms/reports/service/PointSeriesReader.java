@@ -0,0 +1,131 @@
+package ncpl.bms.reports.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Reads the raw samples of point tables for a date range, ordered by timestamp.
+ * Multi-table reads run on the bounded report fetch executor and keep the input order.
+ */
+@Component
+public class PointSeriesReader {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("reportFetchExecutor")
+    private ExecutorService reportFetchExecutor;
+
+    // Optional: sizes the sample buffers from the catalogued density of each point
+    @Autowired(required = false)
+    private PointStatisticsService pointStatistics;
+
+    public PointSeries read(String tableName, Timestamp fromDate, Timestamp toDate) {
+        // Scheduled runs share one fetch per point and window across their templates
+        PointSeriesBatch batch = PointSeriesBatch.current();
+        if (batch != null) {
+            return batch.get(tableName, fromDate.getTime(), toDate.getTime(), () -> fetch(tableName, fromDate, toDate));
+        }
+        return fetch(tableName, fromDate, toDate);
+    }
+
+    private PointSeries fetch(String tableName, Timestamp fromDate, Timestamp toDate) {
+        int expectedRows = pointStatistics == null ? 1024
+                : pointStatistics.expectedRows(tableName, fromDate.getTime(), toDate.getTime(), 1024);
+        PointSeries series = new PointSeries(tableName, expectedRows);
+        String sql = "SELECT value, timestamp FROM " + tableName + " WHERE timestamp BETWEEN ? AND ? ORDER BY timestamp";
+        ExportProgress progress = ExportProgress.current();
+        if (progress == null) {
+            jdbcTemplate.query(sql, rs -> {
+                series.add(rs.getTimestamp("timestamp").getTime(), (Number) rs.getObject("value"));
+            }, fromDate, toDate);
+            return series;
+        }
+
+        // Export jobs count fetched rows and can cancel the statement while it runs
+        progress.checkCancelled();
+        progress.addExpectedRows(expectedRows);
+        List<PreparedStatement> statements = new ArrayList<>(1);
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setTimestamp(1, fromDate);
+                ps.setTimestamp(2, toDate);
+                statements.add(ps);
+                progress.track(ps);
+                return ps;
+            }, rs -> {
+                series.add(rs.getTimestamp("timestamp").getTime(), (Number) rs.getObject("value"));
+                progress.addRowsFetched(1);
+            });
+        } finally {
+            statements.forEach(progress::untrack);
+        }
+        progress.checkCancelled();
+        return series;
+    }
+
+    public List<PointSeries> readAll(List<String> tableNames, Timestamp fromDate, Timestamp toDate) {
+        return inParallel(tableNames, table -> read(table, fromDate, toDate));
+    }
+
+    public List<Integer> countAll(List<String> tableNames, Timestamp fromDate, Timestamp toDate) {
+        if (PointSeriesBatch.current() != null) {
+            // The series are needed anyway, so they are fetched once and counted in memory
+            return readAll(tableNames, fromDate, toDate).stream().map(PointSeries::size).toList();
+        }
+        return inParallel(tableNames, table -> {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + table + " WHERE timestamp BETWEEN ? AND ?", Integer.class, fromDate, toDate);
+            return count == null ? 0 : count;
+        });
+    }
+
+    private <T> List<T> inParallel(List<String> tableNames, Function<String, T> task) {
+        List<Future<T>> futures = new ArrayList<>();
+        ExportProgress progress = ExportProgress.current();
+        PointSeriesBatch batch = PointSeriesBatch.current();
+        for (String table : tableNames) {
+            futures.add(reportFetchExecutor.submit(() -> {
+                // The export job's progress and shared batch follow its reads onto the fetch threads
+                ExportProgress previous = ExportProgress.bind(progress);
+                PointSeriesBatch previousBatch = PointSeriesBatch.bind(batch);
+                try {
+                    return task.apply(table);
+                } finally {
+                    PointSeriesBatch.restore(previousBatch);
+                    ExportProgress.restore(previous);
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching report data", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        } finally {
+            // No-op for finished tasks, stops the rest when one table failed
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,24 @@
+package ncpl.bms.reports.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Catalogued shape of one point table: first/last sample, row and null counts and the typical
+ * gap between samples, as of coveredUntil. Rows after coveredUntil are not counted yet.
+ */
+@Getter
+@AllArgsConstructor
+public class PointStatistics {
+    private final String point;
+    private final Long firstTimestamp;
+    private final Long lastTimestamp;
+    private final long rowCount;
+    private final long nullCount;
+    private final Long typicalIntervalMs;
+    private final long coveredUntil;
+
+    public double getNullRate() {
+        return rowCount == 0 ? 0 : (double) nullCount / rowCount;
+    }
+}
@@ -0,0 +1,240 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.ReportSchema;
+import ncpl.bms.reports.db.info.TableInfoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-point catalog of row counts per day (report_point_daily) and a summary per point
+ * (report_point_stats), refreshed incrementally from the last catalogued day. Report planning
+ * reads row estimates from here instead of counting the point tables for every request.
+ */
+@Service
+@Slf4j
+public class PointStatisticsService implements CommandLineRunner {
+
+    private static final String DAILY_TABLE = "report_point_daily";
+    private static final String SUMMARY_TABLE = "report_point_stats";
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableInfoService tableInfoService;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.point-stats.enabled:true}")
+    private boolean enabled;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<String, PointStatistics> statistics = new ConcurrentHashMap<>();
+
+    private static final class DayCount {
+        private final long dayStart;
+        private final int rows;
+        private final int nulls;
+        private final long first;
+        private final long last;
+
+        private DayCount(long dayStart, int rows, int nulls, long first, long last) {
+            this.dayStart = dayStart;
+            this.rows = rows;
+            this.nulls = nulls;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        createTables();
+        load();
+    }
+
+    public void createTables() {
+        ReportSchema.createTable(jdbcTemplate, DAILY_TABLE,
+                "point_name VARCHAR(128) NOT NULL, day_start BIGINT NOT NULL, row_count INT NOT NULL, null_count INT NOT NULL, " +
+                "first_timestamp BIGINT NOT NULL, last_timestamp BIGINT NOT NULL, PRIMARY KEY (point_name, day_start)");
+        ReportSchema.createTable(jdbcTemplate, SUMMARY_TABLE,
+                "point_name VARCHAR(128) NOT NULL PRIMARY KEY, first_timestamp BIGINT NULL, last_timestamp BIGINT NULL, " +
+                "row_count BIGINT NOT NULL, null_count BIGINT NOT NULL, typical_interval_ms BIGINT NULL, covered_until BIGINT NOT NULL");
+    }
+
+    // Catalogued summaries as of the last refresh
+    public void load() {
+        jdbcTemplate.query("SELECT point_name, first_timestamp, last_timestamp, row_count, null_count, typical_interval_ms, covered_until " +
+                "FROM " + SUMMARY_TABLE, rs -> {
+            PointStatistics point = new PointStatistics(rs.getString("point_name"),
+                    rs.getObject("first_timestamp", Long.class), rs.getObject("last_timestamp", Long.class),
+                    rs.getLong("row_count"), rs.getLong("null_count"),
+                    rs.getObject("typical_interval_ms", Long.class), rs.getLong("covered_until"));
+            statistics.put(point.getPoint(), point);
+        });
+    }
+
+    public List<PointStatistics> getAll() {
+        List<PointStatistics> all = new ArrayList<>(statistics.values());
+        all.sort((a, b) -> a.getPoint().compareTo(b.getPoint()));
+        return all;
+    }
+
+    public PointStatistics get(String point) {
+        return statistics.get(point);
+    }
+
+    @Scheduled(fixedDelayString = "${report.point-stats.refresh-ms:900000}", initialDelayString = "${report.point-stats.initial-delay-ms:120000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long started = now;
+        int days = 0;
+        for (String point : tableInfoService.getTables()) {
+            try {
+                days += refreshPoint(point, now);
+            } catch (RuntimeException e) {
+                log.warn("Point statistics of {} failed: {}", point, e.getMessage());
+                reportMetrics.increment("point-stats.failures");
+            }
+        }
+        reportMetrics.recordRun("point-stats", days, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Recounts the point's last catalogued day (it may have been partial) and every day after it,
+     * up to the cutoff, then rebuilds the summary. Returns the number of days written.
+     */
+    public int refreshPoint(String point, long cutoff) {
+        Long lastDay = jdbcTemplate.queryForObject("SELECT MAX(day_start) FROM " + DAILY_TABLE + " WHERE point_name = ?", Long.class, point);
+        long from = lastDay == null ? 0L : lastDay;
+
+        List<DayCount> counted = new ArrayList<>();
+        String sql = "SELECT CAST(timestamp AS DATE) AS sample_day, COUNT(*) AS row_count, COUNT(value) AS value_count, " +
+                "MIN(timestamp) AS first_timestamp, MAX(timestamp) AS last_timestamp FROM " + point +
+                " WHERE timestamp >= ? AND timestamp < ? GROUP BY CAST(timestamp AS DATE) ORDER BY sample_day";
+        jdbcTemplate.query(sql, rs -> {
+            int rows = rs.getInt("row_count");
+            counted.add(new DayCount(rs.getDate("sample_day").toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli(),
+                    rows, rows - rs.getInt("value_count"),
+                    rs.getTimestamp("first_timestamp").getTime(), rs.getTimestamp("last_timestamp").getTime()));
+        }, new Timestamp(from), new Timestamp(cutoff));
+
+        jdbcTemplate.update("DELETE FROM " + DAILY_TABLE + " WHERE point_name = ? AND day_start >= ?", point, from);
+        jdbcTemplate.batchUpdate("INSERT INTO " + DAILY_TABLE + " (point_name, day_start, row_count, null_count, first_timestamp, last_timestamp) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", counted, 1000, (PreparedStatement ps, DayCount day) -> {
+            ps.setString(1, point);
+            ps.setLong(2, day.dayStart);
+            ps.setInt(3, day.rows);
+            ps.setInt(4, day.nulls);
+            ps.setLong(5, day.first);
+            ps.setLong(6, day.last);
+        });
+
+        statistics.put(point, summarize(point, cutoff));
+        return counted.size();
+    }
+
+    private PointStatistics summarize(String point, long coveredUntil) {
+        List<DayCount> days = jdbcTemplate.query("SELECT day_start, row_count, null_count, first_timestamp, last_timestamp FROM " +
+                DAILY_TABLE + " WHERE point_name = ? ORDER BY day_start", (rs, rowNum) -> new DayCount(rs.getLong("day_start"),
+                rs.getInt("row_count"), rs.getInt("null_count"), rs.getLong("first_timestamp"), rs.getLong("last_timestamp")), point);
+
+        long rows = 0;
+        long nulls = 0;
+        List<Long> intervals = new ArrayList<>();
+        for (DayCount day : days) {
+            rows += day.rows;
+            nulls += day.nulls;
+            if (day.rows > 1) {
+                intervals.add((day.last - day.first) / (day.rows - 1));
+            }
+        }
+        // Median of the per-day mean gaps, so outages spanning days do not inflate it
+        Collections.sort(intervals);
+        Long typicalInterval = intervals.isEmpty() ? null : intervals.get(intervals.size() / 2);
+        Long first = days.isEmpty() ? null : days.get(0).first;
+        Long last = days.isEmpty() ? null : days.get(days.size() - 1).last;
+
+        PointStatistics summary = new PointStatistics(point, first, last, rows, nulls, typicalInterval, coveredUntil);
+        jdbcTemplate.update("DELETE FROM " + SUMMARY_TABLE + " WHERE point_name = ?", point);
+        jdbcTemplate.update("INSERT INTO " + SUMMARY_TABLE + " (point_name, first_timestamp, last_timestamp, row_count, null_count, " +
+                "typical_interval_ms, covered_until) VALUES (?, ?, ?, ?, ?, ?, ?)", point, first, last, rows, nulls, typicalInterval, coveredUntil);
+        return summary;
+    }
+
+    /**
+     * Estimated rows of each point in [from, to] from the daily counts, with the first and last day
+     * prorated by overlap. Null when a point is not catalogued up to the end of the range, so the
+     * caller has to count.
+     */
+    public long[] estimateRows(List<String> points, long fromMillis, long toMillis) {
+        if (!enabled || points.isEmpty()) {
+            return null;
+        }
+        for (String point : points) {
+            PointStatistics known = statistics.get(point);
+            if (known == null || known.getCoveredUntil() < toMillis) {
+                return null;
+            }
+        }
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < points.size(); i++) {
+            index.put(points.get(i), i);
+        }
+        double[] estimates = new double[points.size()];
+        List<Object> args = new ArrayList<>(points);
+        args.add(RollupResolution.DAILY.bucketStart(fromMillis, zone));
+        args.add(toMillis);
+        jdbcTemplate.query("SELECT point_name, day_start, row_count FROM " + DAILY_TABLE + " WHERE point_name IN (" +
+                String.join(", ", Collections.nCopies(points.size(), "?")) + ") AND day_start >= ? AND day_start <= ?", rs -> {
+            long dayStart = rs.getLong("day_start");
+            long overlap = Math.min(toMillis, dayStart + DAY_MILLIS) - Math.max(fromMillis, dayStart);
+            estimates[index.get(rs.getString("point_name"))] += rs.getInt("row_count") * Math.max(0, Math.min(1.0, (double) overlap / DAY_MILLIS));
+        }, args.toArray());
+
+        long[] rows = new long[estimates.length];
+        for (int i = 0; i < estimates.length; i++) {
+            rows[i] = Math.round(estimates[i]);
+        }
+        return rows;
+    }
+
+    // Expected samples of one point in a range from its average density; only used to size buffers
+    public int expectedRows(String point, long fromMillis, long toMillis, int defaultRows) {
+        PointStatistics known = statistics.get(point);
+        if (known == null || known.getFirstTimestamp() == null || known.getRowCount() == 0) {
+            return defaultRows;
+        }
+        long span = Math.max(1, known.getLastTimestamp() - known.getFirstTimestamp());
+        long overlap = Math.min(toMillis, known.getLastTimestamp()) - Math.max(fromMillis, known.getFirstTimestamp());
+        if (overlap <= 0) {
+            return 16;
+        }
+        return (int) Math.min(1 << 22, Math.max(16, known.getRowCount() * (double) overlap / span * 1.1));
+    }
+}
@@ -0,0 +1,223 @@
+package ncpl.bms.reports.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.ReportSchema;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Membership and run leases for several bms-reports instances sharing one database. Every node
+ * heartbeats into report_node; nodes seen within report.cluster.node-timeout are live, and each
+ * scheduled run has a preferred owner among them by rendezvous hashing. A run is claimed by
+ * inserting it into report_schedule_run, so only one node can generate it. The owner renews the
+ * lease with its heartbeat until the run completes; a lease that expires belonged to a node that
+ * went away, and the first node to see it takes the run over.
+ */
+@Component
+@Slf4j
+// Before ReportScheduler's runner, whose catch-up claims runs in the tables created here
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReportCluster implements CommandLineRunner {
+
+    static final String NODES = "report_node";
+    static final String RUN_LOG = "report_schedule_run";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    // Defaults to host name and process id, so two instances on one machine stay apart
+    @Value("${report.node.id:}")
+    private String nodeId;
+
+    @Value("${report.cluster.node-timeout:30s}")
+    private Duration nodeTimeout;
+
+    @Value("${report.cluster.lease:2m}")
+    private Duration lease;
+
+    private volatile List<String> liveNodes = List.of();
+
+    @Override
+    public void run(String... args) {
+        createTables();
+        heartbeat();
+        log.info("Report node {} joined, live nodes {}", getNodeId(), liveNodes);
+    }
+
+    // Both cluster tables, including the run log ReportScheduler reads and the heartbeat renews
+    public void createTables() {
+        ReportSchema.createTable(jdbcTemplate, NODES,
+                "node_id VARCHAR(64) NOT NULL PRIMARY KEY, started_at BIGINT NOT NULL, heartbeat_at BIGINT NOT NULL");
+        ReportSchema.createTable(jdbcTemplate, RUN_LOG,
+                "schedule_kind VARCHAR(16) NOT NULL, report_id INT NOT NULL, scheduled_at BIGINT NOT NULL, fired_at BIGINT NOT NULL, " +
+                "owner VARCHAR(64) NULL, lease_until BIGINT NULL, completed_at BIGINT NULL, " +
+                "PRIMARY KEY (schedule_kind, report_id, scheduled_at)");
+        ReportSchema.addColumn(jdbcTemplate, RUN_LOG, "owner", "VARCHAR(64)");
+        ReportSchema.addColumn(jdbcTemplate, RUN_LOG, "lease_until", "BIGINT");
+        ReportSchema.addColumn(jdbcTemplate, RUN_LOG, "completed_at", "BIGINT");
+    }
+
+    public synchronized String getNodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "localhost";
+            }
+            nodeId = host + "-" + ProcessHandle.current().pid();
+        }
+        return nodeId;
+    }
+
+    public List<String> getLiveNodes() {
+        return liveNodes;
+    }
+
+    @Scheduled(fixedDelayString = "${report.cluster.heartbeat-ms:10000}", initialDelayString = "${report.cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        heartbeat(System.currentTimeMillis());
+    }
+
+    void heartbeat(long now) {
+        String self = getNodeId();
+        try {
+            if (jdbcTemplate.update("UPDATE " + NODES + " SET heartbeat_at = ? WHERE node_id = ?", now, self) == 0) {
+                jdbcTemplate.update("INSERT INTO " + NODES + " (node_id, started_at, heartbeat_at) VALUES (?, ?, ?)", self, now, now);
+            }
+            jdbcTemplate.update("UPDATE " + RUN_LOG + " SET lease_until = ? WHERE owner = ? AND completed_at IS NULL",
+                    now + lease.toMillis(), self);
+            List<String> live = new ArrayList<>(jdbcTemplate.queryForList("SELECT node_id FROM " + NODES +
+                    " WHERE heartbeat_at >= ? ORDER BY node_id", String.class, now - nodeTimeout.toMillis()));
+            if (!live.contains(self)) {
+                live.add(self);
+            }
+            liveNodes = List.copyOf(live);
+        } catch (DataAccessException e) {
+            // Leases are not renewed either; another node takes our runs over once they expire
+            reportMetrics.increment("cluster.heartbeat.failures");
+            log.warn("Report node {} heartbeat failed: {}", self, e.getMessage());
+        }
+    }
+
+    /**
+     * True when this node is the preferred owner of the run. Rendezvous hashing moves only the
+     * runs of a node that joins or leaves; with a single live node every run is local.
+     */
+    public boolean isPreferredOwner(String runKey) {
+        List<String> live = liveNodes;
+        if (live.size() <= 1) {
+            return true;
+        }
+        String owner = null;
+        int best = 0;
+        for (String node : live) {
+            int weight = mix((node + "|" + runKey).hashCode());
+            if (owner == null || Integer.compareUnsigned(weight, best) > 0) {
+                owner = node;
+                best = weight;
+            }
+        }
+        return getNodeId().equals(owner);
+    }
+
+    public boolean claim(ScheduleKind kind, long reportId, long scheduledAt) {
+        return claim(kind, reportId, scheduledAt, System.currentTimeMillis());
+    }
+
+    // Inserts the run with this node as owner; false when another node (or an earlier tick) has it
+    boolean claim(ScheduleKind kind, long reportId, long scheduledAt, long now) {
+        try {
+            jdbcTemplate.update("INSERT INTO " + RUN_LOG +
+                            " (schedule_kind, report_id, scheduled_at, fired_at, owner, lease_until) VALUES (?, ?, ?, ?, ?, ?)",
+                    kind.label(), reportId, scheduledAt, now, getNodeId(), now + lease.toMillis());
+            return true;
+        } catch (DuplicateKeyException e) {
+            reportMetrics.increment("schedule.duplicate-runs");
+            return false;
+        } catch (DataAccessException e) {
+            // Without the log entry a restart would run it again; skip it now and let catch-up retry
+            log.error("Could not record {} run of report {} at {}: {}", kind.label(), reportId, scheduledAt, e.getMessage());
+            return false;
+        }
+    }
+
+    public void complete(ScheduleKind kind, long reportId, long scheduledAt) {
+        try {
+            jdbcTemplate.update("UPDATE " + RUN_LOG + " SET completed_at = ? WHERE schedule_kind = ? AND report_id = ? AND scheduled_at = ?",
+                    System.currentTimeMillis(), kind.label(), reportId, scheduledAt);
+        } catch (DataAccessException e) {
+            log.error("Could not complete {} run of report {} at {}: {}", kind.label(), reportId, scheduledAt, e.getMessage());
+        }
+    }
+
+    public List<LeasedRun> takeOverExpired() {
+        return takeOverExpired(System.currentTimeMillis());
+    }
+
+    // Claims the unfinished runs whose owner stopped renewing; the conditional update lets one node win each
+    List<LeasedRun> takeOverExpired(long now) {
+        List<LeasedRun> taken = new ArrayList<>();
+        try {
+            List<LeasedRun> expired = jdbcTemplate.query("SELECT schedule_kind, report_id, scheduled_at, owner FROM " + RUN_LOG +
+                            " WHERE completed_at IS NULL AND lease_until < ?",
+                    (rs, i) -> new LeasedRun(ScheduleKind.valueOf(rs.getString("schedule_kind").toUpperCase()),
+                            rs.getLong("report_id"), rs.getLong("scheduled_at"), rs.getString("owner")), now);
+            for (LeasedRun run : expired) {
+                int updated = jdbcTemplate.update("UPDATE " + RUN_LOG + " SET owner = ?, lease_until = ?, fired_at = ?" +
+                                " WHERE schedule_kind = ? AND report_id = ? AND scheduled_at = ? AND completed_at IS NULL AND lease_until < ?",
+                        getNodeId(), now + lease.toMillis(), now, run.getKind().label(), run.getReportId(), run.getScheduledAt(), now);
+                if (updated == 1) {
+                    log.warn("Report node {} took over {} run of report {} from {}", getNodeId(), run.getKind().label(),
+                            run.getReportId(), run.getPreviousOwner());
+                    reportMetrics.increment("cluster.takeovers");
+                    taken.add(run);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not check for expired report leases: {}", e.getMessage());
+        }
+        return taken;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    @Getter
+    public static class LeasedRun {
+        private final ScheduleKind kind;
+        private final long reportId;
+        private final long scheduledAt;
+        private final String previousOwner;
+
+        LeasedRun(ScheduleKind kind, long reportId, long scheduledAt, String previousOwner) {
+            this.kind = kind;
+            this.reportId = reportId;
+            this.scheduledAt = scheduledAt;
+            this.previousOwner = previousOwner;
+        }
+    }
+}
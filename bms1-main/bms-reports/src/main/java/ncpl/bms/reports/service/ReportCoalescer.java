@@ -0,0 +1,180 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-flight for report generation: identical requests arriving while one is being built wait
+ * for it and share its result, and results are kept for a short time so repeated clicks reuse
+ * them. Two levels are coalesced: report frames, keyed on template, range and row options, and
+ * stored reports, keyed additionally on the user and assignees so a repeated export returns the
+ * stored_reports row already written instead of inserting another.
+ */
+@Component
+@Slf4j
+public class ReportCoalescer {
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.coalesce.frame-ttl:60s}")
+    private Duration frameTtl;
+
+    @Value("${report.coalesce.report-ttl:30s}")
+    private Duration reportTtl;
+
+    // Frames hold every row of a report, so only a few recent ones are kept
+    @Value("${report.coalesce.max-frames:8}")
+    private int maxFrames;
+
+    private final Flights<ReportFrame> frames = new Flights<>("frame");
+    private final Flights<Long> storedReports = new Flights<>("report");
+
+    public static List<Object> frameKey(Long templateId, String fromDate, String toDate, ReportGenerationMode mode,
+                                        Duration interval, DownsampleMode downsampleMode) {
+        return Arrays.asList(templateId, fromDate, toDate, mode, interval, downsampleMode);
+    }
+
+    public ReportFrame frame(List<Object> key, Callable<ReportFrame> loader) throws Exception {
+        return enabled ? frames.execute(key, loader, frameTtl.toMillis(), maxFrames) : loader.call();
+    }
+
+    public Long storedReport(List<Object> key, Callable<Long> loader) throws Exception {
+        return enabled ? storedReports.execute(key, loader, reportTtl.toMillis(), 256) : loader.call();
+    }
+
+    private final class Flights<V> {
+
+        private final String name;
+        private final Map<List<Object>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+        private final Map<List<Object>, Recent<V>> recent = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Flights(String name) {
+            this.name = name;
+        }
+
+        V execute(List<Object> key, Callable<V> loader, long ttlMillis, int maxEntries) throws Exception {
+            while (true) {
+                V cached = cached(key, ttlMillis);
+                if (cached != null) {
+                    reportMetrics.increment("coalesce." + name + ".hits");
+                    return cached;
+                }
+
+                CompletableFuture<V> flight = new CompletableFuture<>();
+                CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+                if (running == null) {
+                    reportMetrics.increment("coalesce." + name + ".misses");
+                    return lead(key, flight, loader, ttlMillis, maxEntries);
+                }
+
+                reportMetrics.increment("coalesce." + name + ".joined");
+                try {
+                    return await(running);
+                } catch (CancellationException e) {
+                    ExportProgress progress = ExportProgress.current();
+                    if (progress != null && progress.isCancelled()) {
+                        throw e;
+                    }
+                    // The leading export was cancelled, not this one: build it again
+                    log.debug("Coalesced {} for {} was cancelled by its leader, retrying", name, key);
+                }
+            }
+        }
+
+        private V lead(List<Object> key, CompletableFuture<V> flight, Callable<V> loader, long ttlMillis, int maxEntries) throws Exception {
+            try {
+                V value = loader.call();
+                // Cached before the flight is removed, so a newcomer finds one or the other
+                remember(key, value, ttlMillis, maxEntries);
+                flight.complete(value);
+                return value;
+            } catch (Exception e) {
+                ExportProgress progress = ExportProgress.current();
+                boolean cancelled = e instanceof CancellationException || (progress != null && progress.isCancelled());
+                flight.completeExceptionally(cancelled ? new CancellationException("Leading export cancelled") : e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        // Waits for the leader; an export job that is cancelled meanwhile stops waiting
+        private V await(CompletableFuture<V> running) throws Exception {
+            ExportProgress progress = ExportProgress.current();
+            while (true) {
+                if (progress != null) {
+                    progress.checkCancelled();
+                }
+                try {
+                    return running.get(1, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    // check cancellation and keep waiting
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        }
+
+        private V cached(List<Object> key, long ttlMillis) {
+            if (ttlMillis <= 0) {
+                return null;
+            }
+            synchronized (recent) {
+                Recent<V> entry = recent.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+                    recent.remove(key);
+                    return null;
+                }
+                return entry.value;
+            }
+        }
+
+        private void remember(List<Object> key, V value, long ttlMillis, int maxEntries) {
+            if (ttlMillis <= 0 || value == null) {
+                return;
+            }
+            synchronized (recent) {
+                recent.put(key, new Recent<>(value, System.currentTimeMillis()));
+                while (recent.size() > maxEntries) {
+                    recent.remove(recent.keySet().iterator().next());
+                }
+            }
+        }
+    }
+
+    private static final class Recent<V> {
+        private final V value;
+        private final long storedAt;
+
+        private Recent(V value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
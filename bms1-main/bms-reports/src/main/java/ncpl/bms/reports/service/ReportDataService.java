@@ -1,7 +1,8 @@
 package ncpl.bms.reports.service;import lombok.extern.slf4j.Slf4j;
 import ncpl.bms.reports.db.info.TableInfoService;
-import ncpl.bms.reports.model.dao.ReportTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -14,7 +15,9 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.UUID;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
@@ -41,44 +44,239 @@ public class ReportDataService {
 
     @Autowired
     private ReportTemplateService templateService;
+
+    @Autowired
+    private ReportPivotEngine reportPivotEngine;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    /**
+     * Engine used to fill report_data: "batch" joins on timestamp with batched JDBC,
+     * "legacy" keeps the original row-by-row INSERT/UPDATE path for comparison.
+     */
+    @Value("${report.pivot.engine:batch}")
+    private String pivotEngine;
+
+    @Autowired
+    private PointSeriesReader pointSeriesReader;
+
+    @Autowired
+    private ReportFetchPlanner reportFetchPlanner;
+
+    @Value("${report.generation.mode:staging}")
+    private String defaultGenerationMode;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Value("${report.downsample.mode:avg}")
+    private String defaultDownsampleMode;
+
+    @Value("${report.staging.layout:auto}")
+    private String stagingLayout;
+
+    @Autowired
+    private ReportCoalescer reportCoalescer;
+
+    public ReportGenerationMode resolveMode(String requestedMode) {
+        return ReportGenerationMode.from(requestedMode, ReportGenerationMode.from(defaultGenerationMode, ReportGenerationMode.STAGING));
+    }
+
+    public DownsampleMode resolveDownsampleMode(String requestedMode) {
+        return DownsampleMode.from(requestedMode, DownsampleMode.from(defaultDownsampleMode, DownsampleMode.AVG));
+    }
+
+    // "15m", "1h", "1d" or an ISO-8601 duration; null/blank means raw samples
+    public Duration resolveInterval(String requestedInterval) {
+        if (requestedInterval == null || requestedInterval.isBlank() || "null".equals(requestedInterval)) {
+            return null;
+        }
+        return DurationStyle.detectAndParse(requestedInterval.trim());
+    }
+
+    /**
+     * With an interval, reads the coarsest rollup that fits the range and interval, one row per bucket.
+     * Falls back to the raw report when no rollup fits or the rollups are not yet up to date.
+     */
+    public ReportFrame generateReportFrame(Long templateId, String fromDateMillis, String toDateMillis, ReportGenerationMode mode, Duration interval) {
+        return generateReportFrame(templateId, fromDateMillis, toDateMillis, mode, interval, resolveDownsampleMode(null));
+    }
+
+    // Identical requests running at the same time, or repeated within report.coalesce.frame-ttl, share one frame
+    public ReportFrame generateReportFrame(Long templateId, String fromDateMillis, String toDateMillis, ReportGenerationMode mode,
+                                           Duration interval, DownsampleMode downsampleMode) {
+        List<Object> key = ReportCoalescer.frameKey(templateId, fromDateMillis, toDateMillis, mode, interval, downsampleMode);
+        try {
+            return reportCoalescer.frame(key, () -> buildReportFrame(templateId, fromDateMillis, toDateMillis, mode, interval, downsampleMode));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ReportFrame buildReportFrame(Long templateId, String fromDateMillis, String toDateMillis, ReportGenerationMode mode,
+                                         Duration interval, DownsampleMode downsampleMode) {
+        if (interval == null) {
+            return generateReportFrame(templateId, fromDateMillis, toDateMillis, mode);
+        }
+        long fromMillis = Long.parseLong(fromDateMillis);
+        long toMillis = Long.parseLong(toDateMillis);
+
+        ReportFrame frame = null;
+        List<String> columns = reportFetchPlanner.plan(templateId).getColumns();
+        RollupResolution resolution = rollupService.selectResolution(columns, fromMillis, toMillis, interval);
+        if (resolution != null) {
+            log.info("Template {} served from {} rollups for interval {}", templateId, resolution, interval);
+            frame = rollupService.readFrame(columns, resolution, fromMillis, toMillis);
+            if (resolution.getMillis() == interval.toMillis()) {
+                return frame;
+            }
+        } else {
+            log.info("No rollup fits template {} for interval {}, reading raw samples", templateId, interval);
+            frame = generateReportFrame(templateId, fromDateMillis, toDateMillis, mode);
+        }
+        return downsample(templateId, frame, fromMillis, interval, downsampleMode);
+    }
+
+    // Shared by the PDF exports and scheduled reports; the reduction is logged and counted in report metrics
+    public ReportFrame downsample(Long templateId, ReportFrame frame, long fromMillis, Duration interval, DownsampleMode downsampleMode) {
+        long started = System.currentTimeMillis();
+        ReportFrame reduced = ReportDownsampler.downsample(frame, fromMillis, interval.toMillis(), downsampleMode);
+        long elapsed = System.currentTimeMillis() - started;
+
+        reportMetrics.add("downsample.rows.in", frame.rowCount());
+        reportMetrics.add("downsample.rows.out", reduced.rowCount());
+        reportMetrics.recordRun("downsample", reduced.rowCount(), elapsed);
+        log.info("Downsampled template {} to {} ({}): {} rows -> {} rows in {} ms",
+                templateId, interval, downsampleMode, frame.rowCount(), reduced.rowCount(), elapsed);
+        return reduced;
+    }
+
+    public ReportFrame generateReportFrame(Long templateId, String fromDateMillis, String toDateMillis, ReportGenerationMode mode) {
+        if (mode == ReportGenerationMode.MERGE) {
+            return generateMergedReportFrame(templateId, fromDateMillis, toDateMillis);
+        }
+        return generateReportFrame(templateId, fromDateMillis, toDateMillis);
+    }
+
+    public List<Map<String, Object>> generateReportData(Long templateId, String fromDateMillis, String toDateMillis, ReportGenerationMode mode) {
+        return generateReportFrame(templateId, fromDateMillis, toDateMillis, mode).toRows();
+    }
+
     public List<Map<String, Object>> generateReportData(Long templateId, String fromDateMillis, String toDateMillis) {
-        List<String> tables = tableInfoService.getTables();
-        if (tables == null || tables.isEmpty()) {
-            throw new RuntimeException("No tables retrieved from tableInfoService.");
+        return generateReportFrame(templateId, fromDateMillis, toDateMillis).toRows();
+    }
+
+    // Joins the template's point tables on timestamp in memory; report_data is neither written nor read.
+    // The series are fetched in parallel and in full, see ReportMergeJoin for why they are not merged over cursors
+    public ReportFrame generateMergedReportFrame(Long templateId, String fromDateMillis, String toDateMillis) {
+        Timestamp fromDate = new Timestamp(Long.parseLong(fromDateMillis));
+        Timestamp toDate = new Timestamp(Long.parseLong(toDateMillis));
+
+        List<String> columns = reportFetchPlanner.plan(templateId).getColumns();
+
+        long started = System.currentTimeMillis();
+        List<PointSeries> series = pointSeriesReader.readAll(columns, fromDate, toDate);
+
+        ReportFrame frame = ReportMergeJoin.join(series);
+        long elapsed = System.currentTimeMillis() - started;
+        reportMetrics.recordRun("merge", frame.rowCount(), elapsed);
+        log.info("Merge join produced {} rows from {} points in {} ms ({} rows/sec)",
+                frame.rowCount(), series.size(), elapsed, ReportMetrics.rowsPerSecond(frame.rowCount(), elapsed));
+        return frame;
+    }
+
+    public ReportFrame generateReportFrame(Long templateId, String fromDateMillis, String toDateMillis) {
+        // Only the template's own point tables are counted and copied
+        List<String> tables = reportFetchPlanner.plan(templateId).getColumns();
+        if (tables.isEmpty()) {
+            log.warn("Template {} has no parameters backed by a point table.", templateId);
+            return new ReportFrame(tables, 0);
+        }
+        // Scheduled batches reuse the run's shared fetches; report_data has no column for points added after it was built
+        if (PointSeriesBatch.current() != null || !stagesWide(tables)) {
+            return joinReportFrame(tables, fromDateMillis, toDateMillis);
         }
-        int max = 0;
-        String tableWithMaxRecords = null;
+        // Every request stages its rows under its own key, so overlapping exports never see or delete each other's rows
+        String requestKey = UUID.randomUUID().toString();
+        try {
+            return stageAndReadReportFrame(templateId, tables, requestKey, fromDateMillis, toDateMillis);
+        } finally {
+            int removed = jdbcTemplate.update("DELETE FROM report_data WHERE request_key = ?", requestKey);
+            log.debug("Removed {} staged report_data rows for request {}", removed, requestKey);
+        }
+    }
 
+    // The rows staging would produce, joined in memory from the template's point series
+    private ReportFrame joinReportFrame(List<String> tables, String fromDateMillis, String toDateMillis) {
         Timestamp fromDate = new Timestamp(Long.parseLong(fromDateMillis));
         Timestamp toDate = new Timestamp(Long.parseLong(toDateMillis));
 
-        // STEP 1: Clean previous data if it exists
-        String checkSql = "SELECT COUNT(*) FROM report_data WHERE timestamp BETWEEN ? AND ?";
-        Integer existingCount = jdbcTemplate.queryForObject(checkSql, new Object[]{fromDate.getTime(), toDate.getTime()}, Integer.class);
-        if (existingCount != null && existingCount > 0) {
-            String deleteSql = "DELETE FROM report_data WHERE timestamp BETWEEN ? AND ?";
-            jdbcTemplate.update(deleteSql, fromDate.getTime(), toDate.getTime());
-            log.info("Old report data deleted for given date range.");
-        }
-        // STEP 2: Find table with maximum rows
-        for (String tableName : tables) {
-            String sql = "SELECT COUNT(*) FROM " + tableName + " WHERE timestamp BETWEEN ? AND ?";
-            Integer count = jdbcTemplate.queryForObject(sql, new Object[]{fromDate, toDate}, Integer.class);
-            if (count != null && count > max) {
-                max = count;
-                tableWithMaxRecords = tableName;
-            }
+        long started = System.currentTimeMillis();
+        String drivingTable = reportFetchPlanner.drivingTable(tables, fromDate, toDate);
+        if (drivingTable == null) {
+            log.warn("No records found in any table for the provided date range.");
+            return new ReportFrame(tables, 0);
+        }
+        List<PointSeries> series = pointSeriesReader.readAll(tables, fromDate, toDate);
+        ReportFrame frame = ReportPivotEngine.join(series, tables.indexOf(drivingTable));
+
+        long elapsed = System.currentTimeMillis() - started;
+        boolean shared = PointSeriesBatch.current() != null;
+        reportMetrics.recordRun(shared ? "pivot.shared" : "pivot.join", frame.rowCount(), elapsed);
+        log.info("{} join built {} rows from {} points in {} ms", shared ? "Shared fetch" : "In-memory",
+                frame.rowCount(), tables.size(), elapsed);
+        return frame;
+    }
+
+    // WIDE always stages; AUTO only when report_data has a column for every point of the template.
+    // Until the warming catalog knows report_data's columns the staged read could not select any, so both join
+    boolean stagesWide(List<String> tables) {
+        List<String> columns = tableInfoService.getColumns("report_data");
+        if (columns.isEmpty()) {
+            return false;
         }
+        return StagingLayout.from(stagingLayout, StagingLayout.AUTO) == StagingLayout.WIDE || columns.containsAll(tables);
+    }
+
+    private ReportFrame stageAndReadReportFrame(Long templateId, List<String> tables, String requestKey, String fromDateMillis, String toDateMillis) {
+        Timestamp fromDate = new Timestamp(Long.parseLong(fromDateMillis));
+        Timestamp toDate = new Timestamp(Long.parseLong(toDateMillis));
+
+        // STEP 1: Find table with maximum rows
+        String tableWithMaxRecords = reportFetchPlanner.drivingTable(tables, fromDate, toDate);
 
         if (tableWithMaxRecords == null) {
             log.warn("No records found in any table for the provided date range.");
-            return new ArrayList<>();
+            return new ReportFrame(tables, 0);
         }
 
-        System.out.println("Table with maximum records: {}"+ tableWithMaxRecords);
+        log.debug("Table with maximum records: {}", tableWithMaxRecords);
         final String finalTableWithMaxRecords = tableWithMaxRecords;
 
-        // STEP 3: Insert into report_data
+        // STEP 2: Pivot every table into report_data under this request's key
+        List<String> filteredTablesList = tables.stream()
+                .filter(t -> !t.equals(finalTableWithMaxRecords))
+                .collect(Collectors.toList());
+
+        long started = System.currentTimeMillis();
+        int rowCount;
+        if ("legacy".equalsIgnoreCase(pivotEngine)) {
+            rowCount = pivotRowByRow(requestKey, finalTableWithMaxRecords, filteredTablesList, fromDate, toDate);
+        } else {
+            rowCount = reportPivotEngine.pivot(requestKey, finalTableWithMaxRecords, filteredTablesList, fromDate, toDate);
+        }
+        long elapsed = System.currentTimeMillis() - started;
+        reportMetrics.recordRun("pivot." + pivotEngine.toLowerCase(), rowCount, elapsed);
+        log.info("Pivot engine '{}' wrote {} report_data rows in {} ms ({} rows/sec)",
+                pivotEngine, rowCount, elapsed, ReportMetrics.rowsPerSecond(rowCount, elapsed));
+
+        return readStagedReportFrame(templateId, requestKey);
+    }
+    // Original row-by-row path: one INSERT per driving sample, one UPDATE per sample of every other table
+    private int pivotRowByRow(String requestKey, String finalTableWithMaxRecords, List<String> filteredTablesList, Timestamp fromDate, Timestamp toDate) {
         String fetchSql = "SELECT value, timestamp FROM " + finalTableWithMaxRecords + " WHERE timestamp BETWEEN ? AND ?";
         List<Map<String, Object>> rows = jdbcTemplate.queryForList(fetchSql, fromDate, toDate);
 
@@ -89,21 +287,18 @@ public class ReportDataService {
             KeyHolder keyHolder = new GeneratedKeyHolder();
 
             jdbcTemplate.update(connection -> {
-                String insertSql = "INSERT INTO report_data (timestamp, " + finalTableWithMaxRecords + ") VALUES (?, ?)";
+                String insertSql = "INSERT INTO report_data (request_key, timestamp, " + finalTableWithMaxRecords + ") VALUES (?, ?, ?)";
                 PreparedStatement ps = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS);
-                ps.setLong(1, timestampInMillis);
-                ps.setObject(2, row.get("value"));
+                ps.setString(1, requestKey);
+                ps.setLong(2, timestampInMillis);
+                ps.setObject(3, row.get("value"));
                 return ps;
             }, keyHolder);
 
             reportIds.add(keyHolder.getKey().intValue());
         }
 
-        // STEP 4: Update remaining columns
-        List<String> filteredTablesList = tables.stream()
-                .filter(t -> !t.equals(finalTableWithMaxRecords))
-                .collect(Collectors.toList());
-
+        // Update remaining columns
         for (String columnNameToUpdate : filteredTablesList) {
             String updateSql = "SELECT value FROM " + columnNameToUpdate + " WHERE timestamp BETWEEN ? AND ?";
             List<Map<String, Object>> rowsUpdate = jdbcTemplate.queryForList(updateSql, fromDate, toDate);
@@ -117,7 +312,7 @@ public class ReportDataService {
                 jdbcTemplate.update(updateQuery, row.get("value"), reportId);
             }
         }
-        return getReportData(templateId, fromDateMillis, toDateMillis);
+        return reportIds.size();
     }
     private long convertTimestampToMillis(String timestamp) {
         // Normalize the timestamp to ensure 3 digits for milliseconds
@@ -133,18 +328,12 @@ public class ReportDataService {
         LocalDateTime dateTime = LocalDateTime.parse(timestamp, formatter);
         return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
-    public List<Map<String, Object>> getReportData(Long templateId, String fromDate, String toDate) {
-        ReportTemplate template = templateService.getById(templateId);
-        List<String> allParams = template.getParameters();
-        // Step 1: Fetch valid column names from report_data table
-        List<String> validColumns = jdbcTemplate.queryForList(
-                "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'report_data'",
-                String.class
-        );
+    public ReportFrame readStagedReportFrame(Long templateId, String requestKey) {
+        List<String> baseColumns = templateService.getDescriptor(templateId).getBaseColumns();
+        // Step 1: Valid column names of report_data, from the schema catalog
+        List<String> validColumns = tableInfoService.getColumns("report_data");
         // Step 2: Sanitize parameters (remove suffixes) and filter only existing columns
-        List<String> safeColumns = allParams.stream()
-                .map(this::removeSuffix) // remove _From_, _To_, _Unit_
-                .distinct()
+        List<String> safeColumns = baseColumns.stream()
                 .filter(validColumns::contains) // only keep those that exist in report_data
                 .collect(Collectors.toList());
 
@@ -155,48 +344,69 @@ public class ReportDataService {
             columns.append(", ").append(column);
         }
 
-        String sqlSelect = "SELECT " + columns + " FROM report_data WHERE timestamp BETWEEN ? AND ?";
-        return jdbcTemplate.queryForList(sqlSelect, fromDate, toDate);
-    }
-    private String removeSuffix(String columnName) {
-        String base = columnName;
-        if (base.contains("_From_")) {
-            base = base.substring(0, base.indexOf("_From_"));
-        }
-        if (base.contains("_To_")) {
-            base = base.substring(0, base.indexOf("_To_"));
+        String sqlSelect = "SELECT " + columns + " FROM report_data WHERE request_key = ? ORDER BY timestamp";
+        ExportProgress progress = ExportProgress.current();
+        if (progress == null) {
+            return jdbcTemplate.query(sqlSelect, rs -> {
+                return ReportFrame.fromResultSet(rs, safeColumns);
+            }, requestKey);
         }
-        if (base.contains("_Unit_")) {
-            base = base.substring(0, base.indexOf("_Unit_"));
+
+        // Export jobs can cancel the read while it runs on the server
+        progress.checkCancelled();
+        List<PreparedStatement> statements = new ArrayList<>(1);
+        try {
+            return jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sqlSelect);
+                ps.setString(1, requestKey);
+                statements.add(ps);
+                progress.track(ps);
+                return ps;
+            }, rs -> {
+                return ReportFrame.fromResultSet(rs, safeColumns);
+            });
+        } finally {
+            statements.forEach(progress::untrack);
         }
-        return base;
     }
-    public Map<String, Map<String, Integer>> calculateStatistics(Long templateId, String fromDate, String toDate) {
-        ReportTemplate template = templateService.getById(templateId);
-        Map<String, Map<String, Integer>> statistics = new LinkedHashMap<>(); // Use LinkedHashMap to maintain order
+    // Per-column statistics as every report PDF prints them, reshaped from the statistics accumulated while the frame was filled
+    public Map<String, Map<String, Map<String, Object>>> calculateStatistics(ReportFrame frame) {
+        Map<String, Map<String, Map<String, Object>>> result = new LinkedHashMap<>();
 
-        for (String parameter : template.getParameters()) {
-            // Remove suffix from parameter
-            String cleanParameter = removeSuffix(parameter);
+        for (int c = 0; c < frame.columnCount(); c++) {
+            ColumnStatistics stats = frame.getStatistics(c);
 
-            // Prepare SQL query with the cleaned parameter name
-            String sql = "SELECT MAX(" + cleanParameter + ") AS max_val, MIN(" + cleanParameter + ") AS min_val, AVG(" + cleanParameter + ") AS avg_val FROM report_data WHERE timestamp BETWEEN ? AND ?";
-            Map<String, Object> result = jdbcTemplate.queryForMap(sql, fromDate, toDate);
+            Map<String, Map<String, Object>> statMap = new LinkedHashMap<>();
+            Map<String, Object> maxMap = new HashMap<>();
+            Map<String, Object> minMap = new HashMap<>();
+            Map<String, Object> avgMap = new HashMap<>();
+            Map<String, Object> stdDevMap = new HashMap<>();
+            Map<String, Object> p95Map = new HashMap<>();
+            Map<String, Object> p99Map = new HashMap<>();
 
-            // Store statistics in a nested map
-            Map<String, Integer> statMap = new HashMap<>();
-            statMap.put("max", convertToInteger(result.get("max_val")));
-            statMap.put("min", convertToInteger( result.get("min_val")));
-            statMap.put("avg", convertToInteger(result.get("avg_val")));
-            statistics.put(cleanParameter, statMap);
-        }
-        return statistics;
-    }
-    private Integer convertToInteger(Object value) {
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
+            if (stats.getCount() > 0) {
+                maxMap.put("value", (int) stats.getMax());
+                maxMap.put("timestamp", stats.getMaxTimestamp());
+
+                minMap.put("value", (int) stats.getMin());
+                minMap.put("timestamp", stats.getMinTimestamp());
+
+                avgMap.put("value", (int) stats.getAverage());
+                stdDevMap.put("value", String.format("%.2f", stats.getStdDev()));
+                p95Map.put("value", String.format("%.2f", stats.getP95()));
+                p99Map.put("value", String.format("%.2f", stats.getP99()));
+            }
+            statMap.put("max", maxMap);
+            statMap.put("min", minMap);
+            statMap.put("avg", avgMap);
+            statMap.put("stddev", stdDevMap);
+            statMap.put("p95", p95Map);
+            statMap.put("p99", p99Map);
+            statMap.put("count", Map.of("value", stats.getCount()));
+            result.put(frame.getColumns().get(c), statMap);
         }
-        return null;
+
+        return result;
     }
 
 }
@@ -0,0 +1,134 @@
+package ncpl.bms.reports.service;
+
+/**
+ * Reduces a frame to one row per interval bucket, buckets counted from the start of the
+ * requested range. The reduced frame keeps the statistics of the full frame, so the
+ * statistics page still reports the extremes of every raw row.
+ */
+public final class ReportDownsampler {
+
+    private ReportDownsampler() {
+    }
+
+    public static ReportFrame downsample(ReportFrame source, long originMillis, long intervalMillis, DownsampleMode mode) {
+        // Row ranges [bucketFrom[b], bucketFrom[b + 1]) of the non-empty buckets
+        int[] bucketFrom = new int[source.rowCount() + 1];
+        long[] bucketStart = new long[source.rowCount()];
+        int buckets = 0;
+        long currentBucket = Long.MIN_VALUE;
+        for (int row = 0; row < source.rowCount(); row++) {
+            long bucket = originMillis + Math.floorDiv(source.timestamp(row) - originMillis, intervalMillis) * intervalMillis;
+            if (bucket != currentBucket) {
+                currentBucket = bucket;
+                bucketFrom[buckets] = row;
+                bucketStart[buckets++] = bucket;
+            }
+        }
+        bucketFrom[buckets] = source.rowCount();
+
+        ReportFrame target = ReportFrame.derivedFrom(source, buckets);
+        for (int b = 0; b < buckets; b++) {
+            target.addRow(bucketStart[b]);
+        }
+        for (int c = 0; c < source.columnCount(); c++) {
+            if (mode == DownsampleMode.LTTB) {
+                largestTriangle(source, target, c, bucketFrom, buckets);
+            } else {
+                for (int b = 0; b < buckets; b++) {
+                    reduce(source, target, c, b, bucketFrom[b], bucketFrom[b + 1], mode);
+                }
+            }
+        }
+        return target;
+    }
+
+    private static void reduce(ReportFrame source, ReportFrame target, int column, int bucket, int fromRow, int toRow, DownsampleMode mode) {
+        double sum = 0;
+        int count = 0;
+        double last = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            if (!source.isNull(row, column)) {
+                sum += source.value(row, column);
+                last = source.value(row, column);
+                count++;
+            }
+        }
+        if (count > 0) {
+            // Averages are truncated like the INT report_data columns and rollup buckets
+            target.set(bucket, column, mode == DownsampleMode.LAST ? last : (int) (sum / count));
+        }
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets over the interval buckets: the first and last buckets keep their
+     * first and last sample, every other bucket keeps the sample forming the largest triangle with
+     * the previously kept sample and the average of the next non-empty bucket.
+     */
+    private static void largestTriangle(ReportFrame source, ReportFrame target, int column, int[] bucketFrom, int buckets) {
+        double previousX = 0;
+        double previousY = 0;
+        boolean hasPrevious = false;
+        for (int b = 0; b < buckets; b++) {
+            int selected = -1;
+            if (!hasPrevious) {
+                selected = firstPresent(source, column, bucketFrom[b], bucketFrom[b + 1]);
+            } else {
+                // Average point of the next bucket that has a value for this column
+                double nextX = 0;
+                double nextY = 0;
+                int nextCount = 0;
+                for (int n = b + 1; n < buckets && nextCount == 0; n++) {
+                    for (int row = bucketFrom[n]; row < bucketFrom[n + 1]; row++) {
+                        if (!source.isNull(row, column)) {
+                            nextX += source.timestamp(row);
+                            nextY += source.value(row, column);
+                            nextCount++;
+                        }
+                    }
+                }
+                if (nextCount == 0) {
+                    selected = lastPresent(source, column, bucketFrom[b], bucketFrom[b + 1]);
+                } else {
+                    nextX /= nextCount;
+                    nextY /= nextCount;
+                    double maxArea = -1;
+                    for (int row = bucketFrom[b]; row < bucketFrom[b + 1]; row++) {
+                        if (source.isNull(row, column)) {
+                            continue;
+                        }
+                        double area = Math.abs((previousX - nextX) * (source.value(row, column) - previousY)
+                                - (previousX - source.timestamp(row)) * (nextY - previousY));
+                        if (area > maxArea) {
+                            maxArea = area;
+                            selected = row;
+                        }
+                    }
+                }
+            }
+            if (selected >= 0) {
+                target.set(b, column, source.value(selected, column));
+                previousX = source.timestamp(selected);
+                previousY = source.value(selected, column);
+                hasPrevious = true;
+            }
+        }
+    }
+
+    private static int firstPresent(ReportFrame frame, int column, int fromRow, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            if (!frame.isNull(row, column)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastPresent(ReportFrame frame, int column, int fromRow, int toRow) {
+        for (int row = toRow - 1; row >= fromRow; row--) {
+            if (!frame.isNull(row, column)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,19 @@
+package ncpl.bms.reports.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Point tables a single report request has to read: the template's own columns that exist
+ * as tables, in template order. Tables outside the template are counted but never touched.
+ */
+@Getter
+@AllArgsConstructor
+public class ReportFetchPlan {
+    private final Long templateId;
+    private final List<String> columns;
+    private final int availableTables;
+    private final int skippedTables;
+}
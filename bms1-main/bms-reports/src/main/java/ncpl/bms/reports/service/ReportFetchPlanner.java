@@ -0,0 +1,77 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.info.TableInfoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class ReportFetchPlanner {
+
+    @Autowired
+    private TableInfoService tableInfoService;
+
+    @Autowired
+    private ReportTemplateService templateService;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Autowired
+    private PointStatisticsService pointStatistics;
+
+    @Autowired
+    private PointSeriesReader pointSeriesReader;
+
+    public ReportFetchPlan plan(Long templateId) {
+        List<String> tables = tableInfoService.getTables();
+        if (tables == null || tables.isEmpty()) {
+            throw new RuntimeException("No tables retrieved from tableInfoService.");
+        }
+        Set<String> available = new HashSet<>(tables);
+
+        List<String> columns = templateService.getDescriptor(templateId).getBaseColumns().stream()
+                .filter(available::contains)
+                .collect(Collectors.toList());
+
+        int skipped = available.size() - columns.size();
+        reportMetrics.increment("planner.requests");
+        reportMetrics.add("planner.tables.planned", columns.size());
+        reportMetrics.add("planner.tables.skipped", skipped);
+        log.info("Fetch plan for template {}: {} of {} tables, {} skipped", templateId, columns.size(), available.size(), skipped);
+
+        return new ReportFetchPlan(templateId, columns, available.size(), skipped);
+    }
+
+    /**
+     * The table with the most rows in the range, whose timestamps become the report rows; null when
+     * no table has data. Uses the point statistics catalog and only counts the tables themselves
+     * when the catalog does not yet cover the range.
+     */
+    public String drivingTable(List<String> tables, Timestamp fromDate, Timestamp toDate) {
+        long[] counts = pointStatistics.estimateRows(tables, fromDate.getTime(), toDate.getTime());
+        if (counts != null) {
+            reportMetrics.increment("planner.counts.catalog");
+        } else {
+            reportMetrics.increment("planner.counts.scanned");
+            counts = pointSeriesReader.countAll(tables, fromDate, toDate).stream().mapToLong(Integer::longValue).toArray();
+        }
+
+        long max = 0;
+        String driving = null;
+        for (int i = 0; i < tables.size(); i++) {
+            if (counts[i] > max) {
+                max = counts[i];
+                driving = tables.get(i);
+            }
+        }
+        return driving;
+    }
+}
@@ -0,0 +1,160 @@
+package ncpl.bms.reports.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar report rows: one long[] timestamp column and one double[] per parameter column,
+ * with a bitmap per column marking which cells hold a value. Rows are appended in timestamp order.
+ * Column statistics are accumulated as cells are set, so no second pass over the data is needed.
+ */
+public class ReportFrame {
+
+    private final List<String> columns;
+    private long[] timestamps;
+    private final double[][] values;
+    private final BitSet[] present;
+    private final ColumnStatistics[] statistics;
+    private final boolean accumulateStatistics;
+    private int rowCount;
+
+    public ReportFrame(List<String> columns, int initialCapacity) {
+        this(columns, initialCapacity, null);
+    }
+
+    private ReportFrame(List<String> columns, int initialCapacity, ColumnStatistics[] sourceStatistics) {
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        int capacity = Math.max(initialCapacity, 16);
+        this.timestamps = new long[capacity];
+        this.values = new double[columns.size()][capacity];
+        this.present = new BitSet[columns.size()];
+        this.accumulateStatistics = sourceStatistics == null;
+        this.statistics = accumulateStatistics ? new ColumnStatistics[columns.size()] : sourceStatistics;
+        for (int c = 0; c < present.length; c++) {
+            present[c] = new BitSet(capacity);
+            if (accumulateStatistics) {
+                statistics[c] = new ColumnStatistics();
+            }
+        }
+    }
+
+    // Empty frame with the same columns whose rows summarise the source's; statistics stay those of the source rows
+    public static ReportFrame derivedFrom(ReportFrame source, int initialCapacity) {
+        return new ReportFrame(source.columns, initialCapacity, source.statistics);
+    }
+
+    // Reads "timestamp, col1, col2, ..." rows, e.g. from report_data, without building a map per row
+    public static ReportFrame fromResultSet(ResultSet rs, List<String> columns) throws SQLException {
+        ReportFrame frame = new ReportFrame(columns, 1024);
+        while (rs.next()) {
+            int row = frame.addRow(rs.getLong(1));
+            for (int c = 0; c < columns.size(); c++) {
+                double value = rs.getDouble(c + 2);
+                if (!rs.wasNull()) {
+                    frame.set(row, c, value);
+                }
+            }
+        }
+        return frame;
+    }
+
+    public int addRow(long timestamp) {
+        if (rowCount == timestamps.length) {
+            int capacity = rowCount * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            for (int c = 0; c < values.length; c++) {
+                values[c] = Arrays.copyOf(values[c], capacity);
+            }
+        }
+        timestamps[rowCount] = timestamp;
+        return rowCount++;
+    }
+
+    // Each cell is set once; a second value for the same cell is ignored
+    public void set(int row, int column, double value) {
+        if (present[column].get(row)) {
+            return;
+        }
+        values[column][row] = value;
+        present[column].set(row);
+        if (accumulateStatistics) {
+            statistics[column].accept(timestamps[row], value);
+        }
+    }
+
+    // Rollup cell: shows the bucket average and feeds the whole bucket into the column statistics
+    public void set(int row, int column, RollupBucket bucket) {
+        if (present[column].get(row) || bucket.getCount() == 0) {
+            return;
+        }
+        values[column][row] = (int) bucket.getAverage();
+        present[column].set(row);
+        if (accumulateStatistics) {
+            statistics[column].accept(bucket);
+        }
+    }
+
+    public ColumnStatistics getStatistics(int column) {
+        return statistics[column];
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int columnCount() {
+        return columns.size();
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    public boolean isNull(int row, int column) {
+        return !present[column].get(row);
+    }
+
+    public double value(int row, int column) {
+        return values[column][row];
+    }
+
+    // Cell text as the report tables print it: "null" when empty, whole numbers without a decimal part
+    public String format(int row, int column) {
+        if (isNull(row, column)) {
+            return "null";
+        }
+        return formatNumber(values[column][row]);
+    }
+
+    public static String formatNumber(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    // Row-per-map view with the same shape getReportData has always returned: timestamp first, then INT columns
+    public List<Map<String, Object>> toRows() {
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("timestamp", timestamps[row]);
+            for (int c = 0; c < columns.size(); c++) {
+                map.put(columns.get(c), isNull(row, c) ? null : (int) values[c][row]);
+            }
+            rows.add(map);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,18 @@
+package ncpl.bms.reports.service;
+
+/**
+ * How report rows are produced for a template and date range.
+ * STAGING copies historian data into report_data and reads it back,
+ * MERGE joins the point tables on timestamp in memory without touching report_data.
+ */
+public enum ReportGenerationMode {
+    STAGING,
+    MERGE;
+
+    public static ReportGenerationMode from(String value, ReportGenerationMode defaultMode) {
+        if (value == null || value.isBlank() || "null".equalsIgnoreCase(value)) {
+            return defaultMode;
+        }
+        return ReportGenerationMode.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,65 @@
+package ncpl.bms.reports.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * K-way merge of fetched point series on timestamp. Every distinct timestamp yields one
+ * frame row with one column per series in the given order; points without a sample at
+ * that instant stay null. Rows have the same shape as the report_data read path.
+ * <p>
+ * The series are read in full before the merge, not merged over open cursors: a cursor per
+ * point would hold a pooled connection per point for the whole report, and templates can have
+ * far more points than the pool has connections. Samples are kept in primitive arrays, a small
+ * fraction of what the rendered PDF took before it was spooled to disk.
+ */
+public final class ReportMergeJoin {
+
+    private ReportMergeJoin() {
+    }
+
+    public static ReportFrame join(List<PointSeries> series) {
+        int capacity = series.stream().mapToInt(PointSeries::size).max().orElse(0);
+        ReportFrame frame = new ReportFrame(series.stream().map(PointSeries::getName).collect(Collectors.toList()), capacity);
+
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingLong(Cursor::timestamp));
+        for (int c = 0; c < series.size(); c++) {
+            if (series.get(c).size() > 0) {
+                heads.add(new Cursor(series.get(c), c));
+            }
+        }
+
+        while (!heads.isEmpty()) {
+            long timestamp = heads.peek().timestamp();
+            int row = frame.addRow(timestamp);
+            while (!heads.isEmpty() && heads.peek().timestamp() == timestamp) {
+                Cursor cursor = heads.poll();
+                // report_data stores INT columns, keep the same values here
+                if (!cursor.series.isNull(cursor.index)) {
+                    frame.set(row, cursor.column, (int) cursor.series.valueAt(cursor.index));
+                }
+                if (++cursor.index < cursor.series.size()) {
+                    heads.add(cursor);
+                }
+            }
+        }
+        return frame;
+    }
+
+    private static class Cursor {
+        private final PointSeries series;
+        private final int column;
+        private int index;
+
+        private Cursor(PointSeries series, int column) {
+            this.series = series;
+            this.column = column;
+        }
+
+        private long timestamp() {
+            return series.timestampAt(index);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ncpl.bms.reports.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process counters for report generation. Values are cumulative since startup
+ * and are served as-is by the metrics endpoint.
+ */
+@Component
+public class ReportMetrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long amount) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(amount);
+    }
+
+    // Records one run of a row producing stage, e.g. "pivot.batch" -> pivot.batch.runs/rows/millis
+    public void recordRun(String stage, long rows, long millis) {
+        add(stage + ".runs", 1);
+        add(stage + ".rows", rows);
+        add(stage + ".millis", millis);
+    }
+
+    public static long rowsPerSecond(long rows, long millis) {
+        return millis <= 0 ? rows * 1000 : rows * 1000 / millis;
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((name, value) -> result.put(name, value.sum()));
+        return result;
+    }
+}
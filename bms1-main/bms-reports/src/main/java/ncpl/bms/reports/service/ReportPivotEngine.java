@@ -0,0 +1,157 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills report_data for a date range with batched JDBC instead of one INSERT/UPDATE
+ * round trip per sample. The driving table decides the row set; every other table is
+ * joined onto it by timestamp and the wide rows are written with a single batched INSERT.
+ */
+@Component
+@Slf4j
+public class ReportPivotEngine {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PointSeriesReader pointSeriesReader;
+
+    @Value("${report.pivot.batch-size:1000}")
+    private int batchSize;
+
+    public int pivot(String requestKey, String drivingTable, List<String> otherTables, Timestamp fromDate, Timestamp toDate) {
+        List<String> tables = new ArrayList<>();
+        tables.add(drivingTable);
+        tables.addAll(otherTables);
+        List<PointSeries> series = pointSeriesReader.readAll(tables, fromDate, toDate);
+
+        PointSeries driving = series.get(0);
+        if (driving.size() == 0) {
+            return 0;
+        }
+
+        // Row layout: [timestamp, drivingTable, otherTables...], request_key is bound separately
+        List<Object[]> rows = new ArrayList<>(driving.size());
+        for (int i = 0; i < driving.size(); i++) {
+            Object[] row = new Object[series.size() + 1];
+            row[0] = driving.timestampAt(i);
+            row[1] = driving.isNull(i) ? null : (int) driving.valueAt(i);
+            rows.add(row);
+        }
+
+        // All series are ordered by timestamp, so each one is joined with a single forward walk
+        for (int s = 1; s < series.size(); s++) {
+            PointSeries other = series.get(s);
+            int cursor = 0;
+            for (Object[] row : rows) {
+                long timestamp = (Long) row[0];
+                while (cursor < other.size() && other.timestampAt(cursor) < timestamp) {
+                    cursor++;
+                }
+                if (cursor < other.size() && other.timestampAt(cursor) == timestamp && !other.isNull(cursor)) {
+                    row[s + 1] = (int) other.valueAt(cursor);
+                }
+            }
+        }
+
+        StringBuilder insertSql = new StringBuilder("INSERT INTO report_data (request_key, timestamp, ").append(drivingTable);
+        StringBuilder placeholders = new StringBuilder("?, ?, ?");
+        for (String table : otherTables) {
+            insertSql.append(", ").append(table);
+            placeholders.append(", ?");
+        }
+        insertSql.append(") VALUES (").append(placeholders).append(")");
+
+        ParameterizedPreparedStatementSetter<Object[]> setter = (ps, row) -> {
+            ps.setString(1, requestKey);
+            ps.setLong(2, (Long) row[0]);
+            for (int i = 1; i < row.length; i++) {
+                if (row[i] == null) {
+                    ps.setNull(i + 2, Types.INTEGER);
+                } else {
+                    ps.setInt(i + 2, (Integer) row[i]);
+                }
+            }
+        };
+        ExportProgress progress = ExportProgress.current();
+        if (progress == null) {
+            jdbcTemplate.batchUpdate(insertSql.toString(), rows, batchSize, setter);
+            return rows.size();
+        }
+
+        // Export jobs can cancel the batch running on the server and stop before the next one
+        List<PreparedStatement> statements = new ArrayList<>(1);
+        try {
+            jdbcTemplate.execute((Connection connection) -> {
+                PreparedStatement ps = connection.prepareStatement(insertSql.toString());
+                statements.add(ps);
+                progress.track(ps);
+                return ps;
+            }, (PreparedStatement ps) -> {
+                for (int i = 0; i < rows.size(); i++) {
+                    setter.setValues(ps, rows.get(i));
+                    ps.addBatch();
+                    if ((i + 1) % batchSize == 0 || i == rows.size() - 1) {
+                        progress.checkCancelled();
+                        ps.executeBatch();
+                    }
+                }
+                return null;
+            });
+        } finally {
+            statements.forEach(progress::untrack);
+        }
+        progress.checkCancelled();
+        return rows.size();
+    }
+
+    /**
+     * The rows pivot() would write to report_data and read back, built in memory: one row per
+     * sample of the driving series, other series matched on exact timestamp. Columns keep the
+     * order of the given series.
+     */
+    public static ReportFrame join(List<PointSeries> series, int driving) {
+        List<String> columns = new ArrayList<>(series.size());
+        series.forEach(s -> columns.add(s.getName()));
+        PointSeries rows = series.get(driving);
+        ReportFrame frame = new ReportFrame(columns, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            frame.addRow(rows.timestampAt(i));
+            if (!rows.isNull(i)) {
+                frame.set(i, driving, (int) rows.valueAt(i));
+            }
+        }
+
+        for (int c = 0; c < series.size(); c++) {
+            if (c == driving) {
+                continue;
+            }
+            PointSeries column = series.get(c);
+            int cursor = 0;
+            for (int row = 0; row < rows.size(); row++) {
+                long timestamp = rows.timestampAt(row);
+                while (cursor < column.size() && column.timestampAt(cursor) < timestamp) {
+                    cursor++;
+                }
+                if (cursor < column.size() && column.timestampAt(cursor) == timestamp && !column.isNull(cursor)) {
+                    // report_data stores INT columns, keep the same values here
+                    frame.set(row, c, (int) column.valueAt(cursor));
+                }
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,343 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.ReportSchema;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Minute-precision scheduler for the daily, weekly and monthly reports, replacing the hourly cron
+ * polls of the schedule tables. The three tables are loaded into a timer wheel at startup and
+ * again whenever a schedule is saved; a tick every minute fires the reports that are due.
+ * Rows with a cron_expression fire at exactly that time. Rows with only the legacy hour/day are
+ * flexible and are spread over report.schedule.spread-minutes after their hour; their report
+ * window still ends at the hour. Every run is recorded in report_schedule_run, and runs missed
+ * while the application was down (up to report.schedule.catch-up ago) are fired on load.
+ * With several nodes on one database, a due run is fired by its preferred owner (ReportCluster);
+ * the other nodes hold it for report.cluster.claim-grace and fire it only if nobody claimed it.
+ */
+@Component
+@Slf4j
+public class ReportScheduler implements CommandLineRunner {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Autowired
+    private ScheduledReportExecutor scheduledReportExecutor;
+
+    @Autowired
+    private ReportCluster reportCluster;
+
+    @Autowired
+    private DailySchedulingService dailySchedulingService;
+
+    @Autowired
+    private WeeklySchedulingService weeklySchedulingService;
+
+    @Autowired
+    private MonthlySchedulingService monthlySchedulingService;
+
+    // wheel (this scheduler) or cron (the original hourly polls in the scheduling controllers)
+    @Value("${report.schedule.engine:wheel}")
+    private String engine;
+
+    @Value("${report.schedule.spread-minutes:50}")
+    private int spreadMinutes;
+
+    @Value("${report.schedule.catch-up:24h}")
+    private Duration catchUp;
+
+    @Value("${report.cluster.claim-grace:2m}")
+    private Duration claimGrace;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private ReportTimerWheel wheel;
+
+    // Due runs of other nodes' shards, fired here if still unclaimed after the grace period
+    private final List<PendingRun> pending = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return "wheel".equalsIgnoreCase(engine);
+    }
+
+    @Override
+    public void run(String... args) {
+        createTables();
+        if (isEnabled()) {
+            reload();
+        }
+    }
+
+    public void createTables() {
+        // report_schedule_run is created by ReportCluster, which runs first
+        for (ScheduleKind kind : ScheduleKind.values()) {
+            ReportSchema.addColumn(jdbcTemplate, kind.getTableName(), "cron_expression", "VARCHAR(64)");
+        }
+    }
+
+    /**
+     * Rebuilds the wheel from the schedule tables and fires the runs that are due but not yet in
+     * the run log. Returns the number of scheduled reports.
+     */
+    public synchronized int reload() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        Map<String, Long> lastRuns = new HashMap<>();
+        jdbcTemplate.query("SELECT schedule_kind, report_id, MAX(scheduled_at) AS last_run FROM " + ReportCluster.RUN_LOG +
+                " GROUP BY schedule_kind, report_id", rs -> {
+            lastRuns.put(rs.getString("schedule_kind") + ":" + rs.getInt("report_id"), rs.getLong("last_run"));
+        });
+
+        ReportTimerWheel loaded = new ReportTimerWheel(now.toEpochSecond() / 60);
+        Map<ZonedDateTime, List<ScheduleEntry>> missed = new LinkedHashMap<>();
+        for (ScheduleEntry entry : loadEntries()) {
+            Long lastRun = lastRuns.get(entry.getKind().label() + ":" + entry.getReportId());
+            ZonedDateTime next;
+            if (lastRun == null) {
+                // Never ran: start with the next run, nothing to catch up
+                next = entry.nextAfter(now.minusMinutes(entry.getOffsetMinutes()));
+            } else {
+                ZonedDateTime from = ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastRun), zone);
+                if (from.isBefore(now.minus(catchUp))) {
+                    from = now.minus(catchUp);
+                }
+                next = entry.nextAfter(from);
+                while (next != null && !entry.fireAt(next).isAfter(now)) {
+                    missed.computeIfAbsent(next, t -> new ArrayList<>()).add(entry);
+                    next = entry.nextAfter(next);
+                }
+            }
+            if (next != null) {
+                entry.setNextRun(next);
+                loaded.add(entry);
+            }
+        }
+        wheel = loaded;
+        log.info("Report scheduler loaded {} scheduled reports, {} missed runs to catch up", loaded.size(),
+                missed.values().stream().mapToInt(List::size).sum());
+
+        missed.forEach((scheduledAt, entries) -> {
+            reportMetrics.add("schedule.catch-up.runs", entries.size());
+            dispatch(scheduledAt, entries, now);
+        });
+        return loaded.size();
+    }
+
+    // Periodic reload, so schedules saved through another node reach this one's wheel
+    @Scheduled(fixedDelayString = "${report.schedule.reload-ms:300000}", initialDelayString = "${report.schedule.reload-ms:300000}")
+    public void refresh() {
+        reload();
+    }
+
+    @Scheduled(cron = "0 * * * * *")
+    public synchronized void tick() {
+        if (!isEnabled() || wheel == null) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        List<ScheduleEntry> due = wheel.advance(now.toEpochSecond() / 60);
+        Map<ZonedDateTime, List<ScheduleEntry>> byTime = new LinkedHashMap<>();
+        for (ScheduleEntry entry : due) {
+            byTime.computeIfAbsent(entry.getNextRun(), t -> new ArrayList<>()).add(entry);
+        }
+        byTime.forEach((scheduledAt, entries) -> dispatch(scheduledAt, entries, now));
+
+        for (ScheduleEntry entry : due) {
+            ZonedDateTime next = entry.nextAfter(entry.getNextRun());
+            if (next != null) {
+                entry.setNextRun(next);
+                wheel.add(entry);
+            }
+        }
+
+        Map<ZonedDateTime, List<ScheduleEntry>> unclaimed = new LinkedHashMap<>();
+        pending.removeIf(run -> {
+            if (run.claimAfter.isAfter(now)) {
+                return false;
+            }
+            unclaimed.computeIfAbsent(run.scheduledAt, t -> new ArrayList<>()).add(run.entry);
+            return true;
+        });
+        unclaimed.forEach(this::fire);
+
+        takeOverExpired();
+    }
+
+    /**
+     * Used by the legacy hourly polls (report.schedule.engine=cron): true on the one node that gets
+     * to run this hour's poll of the given kind. Report id 0 stands for the whole poll.
+     */
+    public boolean claimHourlyPoll(ScheduleKind kind) {
+        long hour = ZonedDateTime.now(zone).truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+        if (!reportCluster.claim(kind, 0, hour)) {
+            return false;
+        }
+        reportCluster.complete(kind, 0, hour);
+        return true;
+    }
+
+    // Next runs in fire order, for the schedule overview
+    public synchronized List<ScheduleEntry> getEntries() {
+        if (wheel == null) {
+            return List.of();
+        }
+        List<ScheduleEntry> entries = wheel.entries();
+        entries.sort(Comparator.comparing(ScheduleEntry::getFireAt));
+        return entries;
+    }
+
+    // Fires this node's share of the runs now and holds the rest for their preferred owners
+    private void dispatch(ZonedDateTime scheduledAt, List<ScheduleEntry> entries, ZonedDateTime now) {
+        List<ScheduleEntry> mine = new ArrayList<>();
+        for (ScheduleEntry entry : entries) {
+            if (reportCluster.isPreferredOwner(runKey(entry.getKind(), entry.getReportId(), scheduledAt))) {
+                mine.add(entry);
+            } else {
+                pending.add(new PendingRun(entry, scheduledAt, now.plus(claimGrace)));
+            }
+        }
+        fire(scheduledAt, mine);
+    }
+
+    private void fire(ZonedDateTime scheduledAt, List<ScheduleEntry> entries) {
+        List<ScheduleEntry> claimed = new ArrayList<>();
+        for (ScheduleEntry entry : entries) {
+            if (reportCluster.claim(entry.getKind(), entry.getReportId(), scheduledAt.toInstant().toEpochMilli())) {
+                claimed.add(entry);
+            }
+        }
+        launch(scheduledAt, claimed);
+    }
+
+    // Reports of one kind and scheduled time cover the same window and share their point fetches
+    private void launch(ZonedDateTime scheduledAt, List<ScheduleEntry> entries) {
+        Map<ScheduleKind, List<ScheduleEntry>> byKind = new LinkedHashMap<>();
+        for (ScheduleEntry entry : entries) {
+            byKind.computeIfAbsent(entry.getKind(), k -> new ArrayList<>()).add(entry);
+        }
+        long scheduledMillis = scheduledAt.toInstant().toEpochMilli();
+        byKind.forEach((kind, kindEntries) -> {
+            PointSeriesBatch batch = scheduledReportExecutor.newBatch();
+            List<CompletableFuture<Void>> jobs = new ArrayList<>();
+            for (ScheduleEntry entry : kindEntries) {
+                CompletableFuture<Void> job = submit(entry, scheduledAt, batch);
+                // Failed runs are completed too; only a node that disappears leaves its lease to expire
+                job.whenComplete((v, e) -> reportCluster.complete(kind, entry.getReportId(), scheduledMillis));
+                jobs.add(job);
+            }
+            scheduledReportExecutor.whenAllDone(kind.label(), jobs, batch);
+        });
+    }
+
+    private void takeOverExpired() {
+        List<ReportCluster.LeasedRun> taken = reportCluster.takeOverExpired();
+        if (taken.isEmpty()) {
+            return;
+        }
+        Map<String, ScheduleEntry> byReport = new HashMap<>();
+        for (ScheduleEntry entry : wheel.entries()) {
+            byReport.put(entry.getKind().label() + ":" + entry.getReportId(), entry);
+        }
+        Map<ZonedDateTime, List<ScheduleEntry>> byTime = new LinkedHashMap<>();
+        for (ReportCluster.LeasedRun run : taken) {
+            ScheduleEntry entry = byReport.get(run.getKind().label() + ":" + run.getReportId());
+            if (entry == null) {
+                // Schedule deleted since, or an hourly poll of the legacy engine
+                reportCluster.complete(run.getKind(), run.getReportId(), run.getScheduledAt());
+                continue;
+            }
+            byTime.computeIfAbsent(ZonedDateTime.ofInstant(Instant.ofEpochMilli(run.getScheduledAt()), zone),
+                    t -> new ArrayList<>()).add(entry);
+        }
+        byTime.forEach(this::launch);
+    }
+
+    private static String runKey(ScheduleKind kind, long reportId, ZonedDateTime scheduledAt) {
+        return kind.label() + ":" + reportId + ":" + scheduledAt.toInstant().toEpochMilli();
+    }
+
+    private CompletableFuture<Void> submit(ScheduleEntry entry, ZonedDateTime scheduledAt, PointSeriesBatch batch) {
+        switch (entry.getKind()) {
+            case WEEKLY:
+                return weeklySchedulingService.submitScheduledReport(entry.getReportId(), entry.getAssignedTo(),
+                        entry.getAssignedApprover(), scheduledAt, batch);
+            case MONTHLY:
+                return monthlySchedulingService.submitScheduledReport(entry.getReportId(), entry.getAssignedTo(),
+                        entry.getAssignedApprover(), scheduledAt, batch);
+            default:
+                return dailySchedulingService.submitScheduledReport(entry.getReportId(), entry.getAssignedTo(),
+                        entry.getAssignedApprover(), scheduledAt, batch);
+        }
+    }
+
+    private List<ScheduleEntry> loadEntries() {
+        List<ScheduleEntry> entries = new ArrayList<>();
+        for (ScheduleKind kind : ScheduleKind.values()) {
+            String sql = "SELECT IdOfReport, assigned_review, assignedApprover, " + kind.getTimeColumn() +
+                    (kind.getDayColumn() == null ? "" : ", " + kind.getDayColumn()) +
+                    ", cron_expression FROM " + kind.getTableName();
+            try {
+                jdbcTemplate.query(sql, rs -> {
+                    long reportId = rs.getLong("IdOfReport");
+                    String cron = rs.getString("cron_expression");
+                    boolean flexible = cron == null || cron.isBlank();
+                    try {
+                        if (flexible) {
+                            cron = kind.toCron(rs.getString(kind.getTimeColumn()),
+                                    kind.getDayColumn() == null ? null : rs.getString(kind.getDayColumn()));
+                        }
+                        entries.add(new ScheduleEntry(kind, reportId, rs.getString("assigned_review"), rs.getString("assignedApprover"),
+                                cron, flexible, spreadOffset(kind, reportId)));
+                    } catch (RuntimeException e) {
+                        log.warn("Skipping {} schedule of report {}: {}", kind.label(), reportId, e.getMessage());
+                    }
+                });
+            } catch (DataAccessException e) {
+                log.warn("Could not load {}: {}", kind.getTableName(), e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    // Stable per report, so a flexible report keeps its minute across restarts
+    private int spreadOffset(ScheduleKind kind, long reportId) {
+        return spreadMinutes <= 0 ? 0 : Math.floorMod((kind.label() + ":" + reportId).hashCode(), spreadMinutes);
+    }
+
+    private static class PendingRun {
+        private final ScheduleEntry entry;
+        private final ZonedDateTime scheduledAt;
+        private final ZonedDateTime claimAfter;
+
+        PendingRun(ScheduleEntry entry, ZonedDateTime scheduledAt, ZonedDateTime claimAfter) {
+            this.entry = entry;
+            this.scheduledAt = scheduledAt;
+            this.claimAfter = claimAfter;
+        }
+    }
+}
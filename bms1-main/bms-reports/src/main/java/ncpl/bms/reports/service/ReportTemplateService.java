@@ -4,9 +4,12 @@ import lombok.extern.slf4j.Slf4j;
 import ncpl.bms.reports.model.dao.ReportTemplate;
 import ncpl.bms.reports.repository.ReportTemplateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -16,9 +19,58 @@ public class ReportTemplateService {
     @Autowired
     private ReportTemplateRepository reportTemplateRepo;
 
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.template.cache-size:256}")
+    private int cacheSize;
+
+    // Parsed templates by id, least recently used evicted first; guarded by its own monitor
+    private final Map<Long, TemplateDescriptor> descriptorCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TemplateDescriptor> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // Bumped by every eviction; a descriptor loaded across an eviction may be stale and is not cached
+    private long evictions;
 
     public ReportTemplate saveTemplate(ReportTemplate reportTemplate) {
-        return reportTemplateRepo.save(reportTemplate);
+        ReportTemplate saved = reportTemplateRepo.save(reportTemplate);
+        evict(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Read-through cached, pre-parsed view of a template for report generation. The entity is
+     * loaded and its parameters deserialized and parsed only on a miss.
+     */
+    public TemplateDescriptor getDescriptor(Long id) {
+        long generation;
+        synchronized (descriptorCache) {
+            TemplateDescriptor cached = descriptorCache.get(id);
+            if (cached != null) {
+                reportMetrics.increment("template.cache.hits");
+                return cached;
+            }
+            generation = evictions;
+        }
+        reportMetrics.increment("template.cache.misses");
+        TemplateDescriptor descriptor = TemplateDescriptor.of(getById(id));
+        synchronized (descriptorCache) {
+            if (evictions == generation) {
+                descriptorCache.put(id, descriptor);
+            }
+        }
+        return descriptor;
+    }
+
+    private void evict(Long id) {
+        synchronized (descriptorCache) {
+            descriptorCache.remove(id);
+            evictions++;
+        }
     }
 
     public List<ReportTemplate> getTemplates(){
@@ -37,6 +89,7 @@ public class ReportTemplateService {
 
     public void deleteTemplatesByIds(List<Long> ids) {
         reportTemplateRepo.deleteAllById(ids);
+        ids.forEach(this::evict);
     }
 
     public ReportTemplate updateTemplate(Long id, ReportTemplate updatedTemplate) {
@@ -48,7 +101,9 @@ public class ReportTemplateService {
             template.setParameters(updatedTemplate.getParameters());
 //            template.setUnits(updatedTemplate.getUnits()); // Added Units
             template.setAdditionalInfo(updatedTemplate.getAdditionalInfo());
-            return reportTemplateRepo.save(template);
+            ReportTemplate saved = reportTemplateRepo.save(template);
+            evict(id);
+            return saved;
         } else {
             throw new RuntimeException("Template not found with id " + id);
         }
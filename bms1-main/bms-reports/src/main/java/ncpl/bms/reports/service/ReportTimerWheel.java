@@ -0,0 +1,65 @@
+package ncpl.bms.reports.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timer wheel with one slot per minute of the hour. An entry sits in the slot of its fire
+ * minute; entries due in a later hour share the slot and are skipped until their minute comes
+ * round. Advancing walks only the slots passed since the last tick, so a tick costs the entries of
+ * those minutes rather than every scheduled report. Not thread-safe; ReportScheduler serializes access.
+ */
+public class ReportTimerWheel {
+
+    private static final int SLOTS = 60;
+
+    private final List<List<ScheduleEntry>> slots = new ArrayList<>(SLOTS);
+    private long currentMinute;
+    private int size;
+
+    public ReportTimerWheel(long startMinute) {
+        for (int i = 0; i < SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentMinute = startMinute;
+    }
+
+    public void add(ScheduleEntry entry) {
+        slots.get((int) Math.floorMod(entry.getFireMinute(), (long) SLOTS)).add(entry);
+        size++;
+    }
+
+    // Removes and returns the entries whose fire minute is at or before nowMinute
+    public List<ScheduleEntry> advance(long nowMinute) {
+        List<ScheduleEntry> due = new ArrayList<>();
+        if (nowMinute <= currentMinute) {
+            return due;
+        }
+        // After a pause longer than a turn every slot is visited once
+        long steps = Math.min(nowMinute - currentMinute, SLOTS);
+        for (long minute = nowMinute - steps + 1; minute <= nowMinute; minute++) {
+            Iterator<ScheduleEntry> entries = slots.get((int) Math.floorMod(minute, (long) SLOTS)).iterator();
+            while (entries.hasNext()) {
+                ScheduleEntry entry = entries.next();
+                if (entry.getFireMinute() <= nowMinute) {
+                    entries.remove();
+                    due.add(entry);
+                    size--;
+                }
+            }
+        }
+        currentMinute = nowMinute;
+        return due;
+    }
+
+    public List<ScheduleEntry> entries() {
+        List<ScheduleEntry> all = new ArrayList<>(size);
+        slots.forEach(all::addAll);
+        return all;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,102 @@
+package ncpl.bms.reports.service;
+
+/**
+ * Aggregate of one point over one rollup bucket. Values are truncated to int on the way in,
+ * the same as report_data's INT columns, so statistics built from buckets match the raw report.
+ */
+public class RollupBucket {
+
+    private final long start;
+    private long count;
+    private double sum;
+    private double sumSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long minTimestamp;
+    private long maxTimestamp;
+
+    public RollupBucket(long start) {
+        this.start = start;
+    }
+
+    public RollupBucket(long start, long count, double sum, double sumSquares,
+                        double min, long minTimestamp, double max, long maxTimestamp) {
+        this.start = start;
+        this.count = count;
+        this.sum = sum;
+        this.sumSquares = sumSquares;
+        this.min = min;
+        this.minTimestamp = minTimestamp;
+        this.max = max;
+        this.maxTimestamp = maxTimestamp;
+    }
+
+    public void accept(long timestamp, double rawValue) {
+        double value = (int) rawValue;
+        count++;
+        sum += value;
+        sumSquares += value * value;
+        if (value > max) {
+            max = value;
+            maxTimestamp = timestamp;
+        }
+        if (value < min) {
+            min = value;
+            minTimestamp = timestamp;
+        }
+    }
+
+    // Folds a finer bucket into this one; buckets must arrive in time order so the earliest min/max wins
+    public void merge(RollupBucket other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        sum += other.sum;
+        sumSquares += other.sumSquares;
+        if (other.max > max) {
+            max = other.max;
+            maxTimestamp = other.maxTimestamp;
+        }
+        if (other.min < min) {
+            min = other.min;
+            minTimestamp = other.minTimestamp;
+        }
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getSumSquares() {
+        return sumSquares;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public double getAverage() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+}
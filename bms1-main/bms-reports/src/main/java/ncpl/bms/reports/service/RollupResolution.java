@@ -0,0 +1,45 @@
+package ncpl.bms.reports.service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket sizes kept by the rollup tables, coarsest last. Buckets start on local hour/day
+ * boundaries so they line up with the ranges the schedulers request.
+ */
+public enum RollupResolution {
+
+    HOURLY("report_rollup_hourly", ChronoUnit.HOURS, 3_600_000L),
+    DAILY("report_rollup_daily", ChronoUnit.DAYS, 86_400_000L);
+
+    private final String tableName;
+    private final ChronoUnit unit;
+    private final long millis;
+
+    RollupResolution(String tableName, ChronoUnit unit, long millis) {
+        this.tableName = tableName;
+        this.unit = unit;
+        this.millis = millis;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public long bucketStart(long timestamp, ZoneId zone) {
+        return Instant.ofEpochMilli(timestamp).atZone(zone).truncatedTo(unit).toInstant().toEpochMilli();
+    }
+
+    public long nextBucketStart(long bucketStart, ZoneId zone) {
+        return Instant.ofEpochMilli(bucketStart).atZone(zone).plus(1, unit).toInstant().toEpochMilli();
+    }
+
+    public boolean isAligned(long timestamp, ZoneId zone) {
+        return bucketStart(timestamp, zone) == timestamp;
+    }
+}
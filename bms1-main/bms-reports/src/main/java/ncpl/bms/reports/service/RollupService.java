@@ -0,0 +1,273 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.ReportSchema;
+import ncpl.bms.reports.db.info.TableInfoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps hourly and daily min/max/sum/count per point in report_rollup_* tables so long-range
+ * reports can read one row per bucket instead of every raw sample. Hourly buckets are built
+ * from the point tables, daily buckets from the hourly ones. report_rollup_watermark records
+ * how far each point has been rolled up; buckets are only written once they are older than
+ * report.rollup.lag, which leaves the historian time to deliver late rows.
+ */
+@Service
+@Slf4j
+public class RollupService implements CommandLineRunner {
+
+    private static final String WATERMARK_TABLE = "report_rollup_watermark";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TableInfoService tableInfoService;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.rollup.lag:10m}")
+    private Duration lag;
+
+    @Value("${report.rollup.chunk-days:7}")
+    private int chunkDays;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        createTables();
+    }
+
+    public void createTables() {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            ReportSchema.createTable(jdbcTemplate, resolution.getTableName(),
+                    "point_name VARCHAR(128) NOT NULL, bucket_start BIGINT NOT NULL, sample_count INT NOT NULL, " +
+                    "sum_value FLOAT NOT NULL, sum_squares FLOAT NOT NULL, " +
+                    "min_value FLOAT NULL, min_timestamp BIGINT NULL, max_value FLOAT NULL, max_timestamp BIGINT NULL, " +
+                    "PRIMARY KEY (point_name, bucket_start)");
+        }
+        ReportSchema.createTable(jdbcTemplate, WATERMARK_TABLE,
+                "point_name VARCHAR(128) NOT NULL, resolution VARCHAR(16) NOT NULL, covered_until BIGINT NOT NULL, " +
+                "PRIMARY KEY (point_name, resolution)");
+    }
+
+    @Scheduled(fixedDelayString = "${report.rollup.refresh-ms:300000}", initialDelayString = "${report.rollup.initial-delay-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - lag.toMillis();
+        long started = System.currentTimeMillis();
+        int buckets = 0;
+        for (String point : tableInfoService.getTables()) {
+            try {
+                buckets += refreshPoint(point, cutoff);
+            } catch (RuntimeException e) {
+                // One broken point table should not stop the others from rolling up
+                log.warn("Rollup of {} failed: {}", point, e.getMessage());
+                reportMetrics.increment("rollup.failures");
+            }
+        }
+        reportMetrics.recordRun("rollup", buckets, System.currentTimeMillis() - started);
+    }
+
+    // Rolls up everything between the point's watermark and the cutoff; returns the number of buckets written
+    public int refreshPoint(String point, long cutoff) {
+        int written = 0;
+
+        long hourlyEnd = RollupResolution.HOURLY.bucketStart(cutoff, zone);
+        Long start = coveredUntil(point, RollupResolution.HOURLY);
+        if (start == null) {
+            Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM " + point, Timestamp.class);
+            if (first == null) {
+                return 0;
+            }
+            start = RollupResolution.HOURLY.bucketStart(first.getTime(), zone);
+        }
+        while (start < hourlyEnd) {
+            long chunkEnd = Math.min(hourlyEnd, RollupResolution.HOURLY.bucketStart(start + chunkDays * 86_400_000L, zone));
+            List<RollupBucket> buckets = aggregateRaw(point, start, chunkEnd);
+            replaceBuckets(RollupResolution.HOURLY, point, start, chunkEnd, buckets);
+            setCoveredUntil(point, RollupResolution.HOURLY, chunkEnd);
+            written += buckets.size();
+            start = chunkEnd;
+        }
+
+        long dailyEnd = RollupResolution.DAILY.bucketStart(Math.min(cutoff, start), zone);
+        Long dailyStart = coveredUntil(point, RollupResolution.DAILY);
+        if (dailyStart == null) {
+            Long firstHour = jdbcTemplate.queryForObject("SELECT MIN(bucket_start) FROM " + RollupResolution.HOURLY.getTableName() +
+                    " WHERE point_name = ?", Long.class, point);
+            if (firstHour == null) {
+                return written;
+            }
+            dailyStart = RollupResolution.DAILY.bucketStart(firstHour, zone);
+        }
+        if (dailyStart < dailyEnd) {
+            List<RollupBucket> days = new ArrayList<>();
+            for (RollupBucket hour : readBuckets(point, RollupResolution.HOURLY, dailyStart, dailyEnd)) {
+                long day = RollupResolution.DAILY.bucketStart(hour.getStart(), zone);
+                if (days.isEmpty() || days.get(days.size() - 1).getStart() != day) {
+                    days.add(new RollupBucket(day));
+                }
+                days.get(days.size() - 1).merge(hour);
+            }
+            replaceBuckets(RollupResolution.DAILY, point, dailyStart, dailyEnd, days);
+            setCoveredUntil(point, RollupResolution.DAILY, dailyEnd);
+            written += days.size();
+        }
+        return written;
+    }
+
+    /**
+     * Coarsest resolution whose buckets fit inside the requested interval, line up with both ends
+     * of the range and are rolled up past its end for every point; null means read raw samples.
+     */
+    public RollupResolution selectResolution(List<String> points, long fromMillis, long toMillis, Duration interval) {
+        if (!enabled || interval == null || points.isEmpty()) {
+            return null;
+        }
+        RollupResolution[] resolutions = RollupResolution.values();
+        for (int i = resolutions.length - 1; i >= 0; i--) {
+            RollupResolution resolution = resolutions[i];
+            if (resolution.getMillis() > interval.toMillis()
+                    || !resolution.isAligned(fromMillis, zone) || !resolution.isAligned(toMillis, zone)) {
+                continue;
+            }
+            if (minCoveredUntil(points, resolution) >= toMillis) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+    // One row per bucket in [from, to), each cell holding the bucket average; column statistics come from the full buckets
+    public ReportFrame readFrame(List<String> points, RollupResolution resolution, long fromMillis, long toMillis) {
+        long started = System.currentTimeMillis();
+        List<List<RollupBucket>> columns = new ArrayList<>(points.size());
+        for (String point : points) {
+            columns.add(readBuckets(point, resolution, fromMillis, toMillis));
+        }
+
+        long[] starts = columns.stream().flatMap(List::stream).mapToLong(RollupBucket::getStart).distinct().sorted().toArray();
+        ReportFrame frame = new ReportFrame(points, starts.length);
+        int[] cursors = new int[columns.size()];
+        for (long start : starts) {
+            int row = frame.addRow(start);
+            for (int c = 0; c < columns.size(); c++) {
+                List<RollupBucket> buckets = columns.get(c);
+                if (cursors[c] < buckets.size() && buckets.get(cursors[c]).getStart() == start) {
+                    frame.set(row, c, buckets.get(cursors[c]++));
+                }
+            }
+        }
+        reportMetrics.recordRun("rollup.read", frame.rowCount(), System.currentTimeMillis() - started);
+        return frame;
+    }
+
+    public List<RollupBucket> readBuckets(String point, RollupResolution resolution, long fromMillis, long toMillis) {
+        String sql = "SELECT bucket_start, sample_count, sum_value, sum_squares, min_value, min_timestamp, max_value, max_timestamp FROM " +
+                resolution.getTableName() + " WHERE point_name = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new RollupBucket(
+                rs.getLong("bucket_start"), rs.getLong("sample_count"), rs.getDouble("sum_value"), rs.getDouble("sum_squares"),
+                rs.getDouble("min_value"), rs.getLong("min_timestamp"), rs.getDouble("max_value"), rs.getLong("max_timestamp")),
+                point, fromMillis, toMillis);
+    }
+
+    private List<RollupBucket> aggregateRaw(String point, long fromMillis, long toMillis) {
+        List<RollupBucket> buckets = new ArrayList<>();
+        long[] bucketEnd = {Long.MIN_VALUE};
+        String sql = "SELECT value, timestamp FROM " + point + " WHERE timestamp >= ? AND timestamp < ? ORDER BY timestamp";
+        jdbcTemplate.query(sql, rs -> {
+            Number value = (Number) rs.getObject("value");
+            if (value == null) {
+                return;
+            }
+            long timestamp = rs.getTimestamp("timestamp").getTime();
+            if (timestamp >= bucketEnd[0]) {
+                long bucketStart = RollupResolution.HOURLY.bucketStart(timestamp, zone);
+                bucketEnd[0] = RollupResolution.HOURLY.nextBucketStart(bucketStart, zone);
+                buckets.add(new RollupBucket(bucketStart));
+            }
+            buckets.get(buckets.size() - 1).accept(timestamp, value.doubleValue());
+        }, new Timestamp(fromMillis), new Timestamp(toMillis));
+        return buckets;
+    }
+
+    // Delete-then-insert keeps a re-run of the same range idempotent
+    private void replaceBuckets(RollupResolution resolution, String point, long fromMillis, long toMillis, List<RollupBucket> buckets) {
+        String table = resolution.getTableName();
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE point_name = ? AND bucket_start >= ? AND bucket_start < ?",
+                point, fromMillis, toMillis);
+        if (buckets.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO " + table + " (point_name, bucket_start, sample_count, sum_value, sum_squares, " +
+                "min_value, min_timestamp, max_value, max_timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, buckets, 1000, (PreparedStatement ps, RollupBucket bucket) -> {
+            ps.setString(1, point);
+            ps.setLong(2, bucket.getStart());
+            ps.setLong(3, bucket.getCount());
+            ps.setDouble(4, bucket.getSum());
+            ps.setDouble(5, bucket.getSumSquares());
+            ps.setDouble(6, bucket.getMin());
+            ps.setLong(7, bucket.getMinTimestamp());
+            ps.setDouble(8, bucket.getMax());
+            ps.setLong(9, bucket.getMaxTimestamp());
+        });
+        reportMetrics.add("rollup.buckets." + resolution.name().toLowerCase(), buckets.size());
+    }
+
+    private Long coveredUntil(String point, RollupResolution resolution) {
+        List<Long> covered = jdbcTemplate.queryForList("SELECT covered_until FROM " + WATERMARK_TABLE +
+                " WHERE point_name = ? AND resolution = ?", Long.class, point, resolution.name());
+        return covered.isEmpty() ? null : covered.get(0);
+    }
+
+    private void setCoveredUntil(String point, RollupResolution resolution, long coveredUntil) {
+        int updated = jdbcTemplate.update("UPDATE " + WATERMARK_TABLE + " SET covered_until = ? WHERE point_name = ? AND resolution = ?",
+                coveredUntil, point, resolution.name());
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO " + WATERMARK_TABLE + " (point_name, resolution, covered_until) VALUES (?, ?, ?)",
+                    point, resolution.name(), coveredUntil);
+        }
+    }
+
+    // Smallest watermark over the points, or Long.MIN_VALUE when one of them has never been rolled up
+    private long minCoveredUntil(List<String> points, RollupResolution resolution) {
+        String placeholders = String.join(", ", Collections.nCopies(points.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(resolution.name());
+        args.addAll(points);
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT COUNT(*) AS points, MIN(covered_until) AS covered FROM " + WATERMARK_TABLE +
+                " WHERE resolution = ? AND point_name IN (" + placeholders + ")", args.toArray());
+        Number count = (Number) row.get("points");
+        Number covered = (Number) row.get("covered");
+        if (count == null || covered == null || count.longValue() < points.stream().distinct().count()) {
+            return Long.MIN_VALUE;
+        }
+        return covered.longValue();
+    }
+}
@@ -0,0 +1,61 @@
+package ncpl.bms.reports.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.ZonedDateTime;
+
+/**
+ * One row of a schedule table as held by the timer wheel. nextRun is the scheduled time the
+ * report's window ends at; a flexible entry (no cron of its own) fires offsetMinutes later so
+ * the reports of one hour do not all start at :00.
+ */
+@Getter
+public class ScheduleEntry {
+
+    private final ScheduleKind kind;
+    private final Long reportId;
+    private final String assignedTo;
+    private final String assignedApprover;
+    private final String cron;
+    private final boolean flexible;
+    private final int offsetMinutes;
+    @JsonIgnore
+    private final CronExpression expression;
+    private ZonedDateTime nextRun;
+
+    public ScheduleEntry(ScheduleKind kind, Long reportId, String assignedTo, String assignedApprover,
+                         String cron, boolean flexible, int offsetMinutes) {
+        this.kind = kind;
+        this.reportId = reportId;
+        this.assignedTo = assignedTo;
+        this.assignedApprover = assignedApprover;
+        this.cron = cron;
+        this.flexible = flexible;
+        this.offsetMinutes = flexible ? offsetMinutes : 0;
+        this.expression = ScheduleKind.parseCron(cron);
+    }
+
+    // First scheduled time after the given one
+    public ZonedDateTime nextAfter(ZonedDateTime time) {
+        return expression.next(time);
+    }
+
+    public void setNextRun(ZonedDateTime nextRun) {
+        this.nextRun = nextRun;
+    }
+
+    public ZonedDateTime fireAt(ZonedDateTime scheduledAt) {
+        return scheduledAt.plusMinutes(offsetMinutes);
+    }
+
+    public ZonedDateTime getFireAt() {
+        return nextRun == null ? null : fireAt(nextRun);
+    }
+
+    @JsonIgnore
+    public long getFireMinute() {
+        return getFireAt().toEpochSecond() / 60;
+    }
+}
@@ -0,0 +1,60 @@
+package ncpl.bms.reports.service;
+
+import org.springframework.scheduling.support.CronExpression;
+
+/**
+ * The three report schedule tables and how their legacy hour/day columns translate to a cron
+ * expression. Times are "H", "HH" or "HH:mm"; weekly days are DayOfWeek names, monthly days numbers.
+ */
+public enum ScheduleKind {
+    DAILY("daily_scheduled_reports", "DailyTimeOfReport", null),
+    WEEKLY("weekly_scheduled_reports", "TimeOfReport", "dayOfReport"),
+    MONTHLY("monthly_scheduled_reports", "TimeOfReport", "dayOfReport");
+
+    private final String tableName;
+    private final String timeColumn;
+    private final String dayColumn;
+
+    ScheduleKind(String tableName, String timeColumn, String dayColumn) {
+        this.tableName = tableName;
+        this.timeColumn = timeColumn;
+        this.dayColumn = dayColumn;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getTimeColumn() {
+        return timeColumn;
+    }
+
+    public String getDayColumn() {
+        return dayColumn;
+    }
+
+    // Name used in metrics and the scheduled report executor
+    public String label() {
+        return name().toLowerCase();
+    }
+
+    public String toCron(String time, String day) {
+        String[] parts = time.trim().split(":");
+        int hour = Integer.parseInt(parts[0].trim());
+        int minute = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 0;
+        switch (this) {
+            case WEEKLY:
+                return String.format("0 %d %d * * %s", minute, hour, day.trim().substring(0, 3).toUpperCase());
+            case MONTHLY:
+                return String.format("0 %d %d %d * *", minute, hour, Integer.parseInt(day.trim()));
+            default:
+                return String.format("0 %d %d * * *", minute, hour);
+        }
+    }
+
+    // Accepts standard 5-field expressions (minute precision) as well as Spring's 6-field form
+    public static CronExpression parseCron(String expression) {
+        String trimmed = expression.trim();
+        return CronExpression.parse(trimmed.split("\\s+").length == 5 ? "0 " + trimmed : trimmed);
+    }
+}
@@ -0,0 +1,120 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Runs the PDFs of the daily, weekly and monthly schedules on their own pool, so a cron run only
+ * hands its reports over and an hour's batch takes about as long as its slowest report. Reports
+ * of the same template still run one after another in submission order. A report still running
+ * after report.schedule.job-timeout has its queries cancelled. Reports of one run can share a
+ * PointSeriesBatch, so each point is read once per window however many templates use it.
+ */
+@Component
+@Slf4j
+public class ScheduledReportExecutor {
+
+    public interface ReportJob {
+        void run() throws Exception;
+    }
+
+    @Autowired
+    @Qualifier("scheduledReportPool")
+    private ExecutorService executor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private ReportMetrics reportMetrics;
+
+    @Value("${report.schedule.job-timeout:30m}")
+    private Duration jobTimeout;
+
+    @Value("${report.schedule.shared-fetch:true}")
+    private boolean sharedFetch;
+
+    // Last queued report per template; the next one for the template starts after it
+    private final Map<Long, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    // Shared point fetches for one cron run's reports, or null when report.schedule.shared-fetch is off
+    public PointSeriesBatch newBatch() {
+        return sharedFetch ? new PointSeriesBatch() : null;
+    }
+
+    public CompletableFuture<Void> submit(String schedule, Long templateId, ReportJob job) {
+        return submit(schedule, templateId, null, job);
+    }
+
+    public CompletableFuture<Void> submit(String schedule, Long templateId, PointSeriesBatch batch, ReportJob job) {
+        long submitted = System.currentTimeMillis();
+        CompletableFuture<Void> queued = tails.compute(templateId, (id, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(e -> null))
+                        .thenRunAsync(() -> run(schedule, templateId, batch, job, submitted), executor));
+        queued.whenComplete((result, error) -> tails.remove(templateId, queued));
+        return queued;
+    }
+
+    public void whenAllDone(String schedule, List<CompletableFuture<Void>> jobs) {
+        whenAllDone(schedule, jobs, null);
+    }
+
+    // Logs once every report of a cron run has finished and releases the run's shared fetches
+    public void whenAllDone(String schedule, List<CompletableFuture<Void>> jobs, PointSeriesBatch batch) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).whenComplete((result, error) -> {
+            long elapsed = System.currentTimeMillis() - started;
+            reportMetrics.recordRun("schedule." + schedule + ".batch", jobs.size(), elapsed);
+            if (batch != null) {
+                // Point reads scale with distinct points per window, not with templates
+                reportMetrics.add("schedule." + schedule + ".batch.points", batch.size());
+                log.info("{} schedule finished {} reports in {} ms, {} distinct point fetches", schedule, jobs.size(), elapsed, batch.size());
+                batch.release();
+            } else {
+                log.info("{} schedule finished {} reports in {} ms", schedule, jobs.size(), elapsed);
+            }
+        });
+    }
+
+    private void run(String schedule, Long templateId, PointSeriesBatch batch, ReportJob job, long submitted) {
+        long started = System.currentTimeMillis();
+        reportMetrics.add("schedule." + schedule + ".queue.millis", started - submitted);
+
+        ExportProgress progress = new ExportProgress();
+        ScheduledFuture<?> timeout = taskScheduler.schedule(progress::cancel, Instant.now().plus(jobTimeout));
+        ExportProgress previous = ExportProgress.bind(progress);
+        PointSeriesBatch previousBatch = PointSeriesBatch.bind(batch);
+        try {
+            job.run();
+            reportMetrics.recordRun("schedule." + schedule, 1, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            if (progress.isCancelled()) {
+                reportMetrics.increment("schedule." + schedule + ".timeouts");
+                log.error("{} report for template {} stopped after {}", schedule, templateId, jobTimeout);
+            } else {
+                reportMetrics.increment("schedule." + schedule + ".failures");
+                log.error("Failed to generate {} report for IdOfReport: {}", schedule, templateId, e);
+            }
+        } finally {
+            timeout.cancel(false);
+            PointSeriesBatch.restore(previousBatch);
+            ExportProgress.restore(previous);
+        }
+    }
+}
@@ -13,10 +13,19 @@ public class SchedulingService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ReportScheduler reportScheduler;
+
     public void scheduleDailyReport(int reportId, String reportName ,  String assignedTo, String assigned_approver, String ScheduledBy,  String dailyTime) {
+        scheduleDailyReport(reportId, reportName, assignedTo, assigned_approver, ScheduledBy, dailyTime, null);
+    }
+
+    // cron, when given, fixes the exact run time; otherwise the report runs flexibly within dailyTime's hour
+    public void scheduleDailyReport(int reportId, String reportName ,  String assignedTo, String assigned_approver, String ScheduledBy,  String dailyTime, String cron) {
+        validateCron(cron);
         int chk = (assigned_approver == null || assigned_approver.trim().isEmpty()) ? 0 : 1;
         long currentTimeMillis = System.currentTimeMillis();
-       String sql = "INSERT INTO Daily_Scheduled_Reports (IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, scheduled_by, schedule_date, DailyTimeOfReport) VALUES (?, ?,?,?,?, ?, ?, ?)";
+       String sql = "INSERT INTO Daily_Scheduled_Reports (IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, scheduled_by, schedule_date, DailyTimeOfReport, cron_expression) VALUES (?, ?,?,?,?, ?, ?, ?, ?)";
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql);
             ps.setInt(1, reportId);
@@ -28,14 +37,21 @@ public class SchedulingService {
             ps.setString(6, ScheduledBy);
             ps.setLong(7, currentTimeMillis);
             ps.setString(8, dailyTime);  // Store the dailyTime in the database
+            ps.setString(9, blankToNull(cron));
             return ps;
         });
+        reportScheduler.reload();
     }
 
     public void scheduleWeeklyReport(int reportId, String reportName ,  String assignedTo, String assigned_approver, String ScheduledBy,  String weeklyTime, String weeklyDay) {
+        scheduleWeeklyReport(reportId, reportName, assignedTo, assigned_approver, ScheduledBy, weeklyTime, weeklyDay, null);
+    }
+
+    public void scheduleWeeklyReport(int reportId, String reportName ,  String assignedTo, String assigned_approver, String ScheduledBy,  String weeklyTime, String weeklyDay, String cron) {
+        validateCron(cron);
         int chk = (assigned_approver == null || assigned_approver.trim().isEmpty()) ? 0 : 1;
         long currentTimeMillis = System.currentTimeMillis();
-        String sql = "INSERT INTO weekly_scheduled_reports (IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, scheduled_by, schedule_date, TimeOfReport, dayOfReport) VALUES (?, ?,?,?,?, ?, ?, ?,?)";
+        String sql = "INSERT INTO weekly_scheduled_reports (IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, scheduled_by, schedule_date, TimeOfReport, dayOfReport, cron_expression) VALUES (?, ?,?,?,?, ?, ?, ?,?, ?)";
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql);
             ps.setInt(1, reportId);
@@ -48,15 +64,22 @@ public class SchedulingService {
             ps.setLong(7, currentTimeMillis);
             ps.setString(8, weeklyTime);
             ps.setString(9,weeklyDay);
+            ps.setString(10, blankToNull(cron));
             return ps;
         });
+        reportScheduler.reload();
     }
 
 
     public void scheduleMonthlyReport(int reportId, String reportName ,  String assignedTo, String assigned_approver, String ScheduledBy,  String monthTime, String monthDay) {
+        scheduleMonthlyReport(reportId, reportName, assignedTo, assigned_approver, ScheduledBy, monthTime, monthDay, null);
+    }
+
+    public void scheduleMonthlyReport(int reportId, String reportName ,  String assignedTo, String assigned_approver, String ScheduledBy,  String monthTime, String monthDay, String cron) {
+        validateCron(cron);
         int chk = (assigned_approver == null || assigned_approver.trim().isEmpty()) ? 0 : 1;
         long currentTimeMillis = System.currentTimeMillis();
-        String sql = "INSERT INTO monthly_scheduled_reports (IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, scheduled_by, schedule_date, TimeOfReport, dayOfReport) VALUES (?, ?,?,?,?, ?, ?, ?,?)";
+        String sql = "INSERT INTO monthly_scheduled_reports (IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, scheduled_by, schedule_date, TimeOfReport, dayOfReport, cron_expression) VALUES (?, ?,?,?,?, ?, ?, ?,?, ?)";
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql);
             ps.setInt(1, reportId);
@@ -69,8 +92,10 @@ public class SchedulingService {
             ps.setLong(7, currentTimeMillis);
             ps.setString(8, monthTime);
             ps.setString(9,monthDay);
+            ps.setString(10, blankToNull(cron));
             return ps;
         });
+        reportScheduler.reload();
     }
 
     public List<Integer> getAllScheduledReports() {
@@ -88,4 +113,15 @@ public class SchedulingService {
         return jdbcTemplate.queryForList(sql, Integer.class);
     }
 
+    // Rejects a malformed expression before it is stored; the scheduler would otherwise skip the row
+    private void validateCron(String cron) {
+        if (blankToNull(cron) != null) {
+            ScheduleKind.parseCron(cron);
+        }
+    }
+
+    private String blankToNull(String cron) {
+        return cron == null || cron.isBlank() ? null : cron.trim();
+    }
+
 }
@@ -0,0 +1,20 @@
+package ncpl.bms.reports.service;
+
+/**
+ * Whether STAGING mode writes a request's rows to report_data.
+ * WIDE always stages them, one report_data row per timestamp with a column per point,
+ * AUTO stages them when report_data has a column for every point of the template and otherwise
+ * joins the template's point series in memory into the same rows. Both join while the schema
+ * catalog is still warming up and does not know report_data's columns yet.
+ */
+public enum StagingLayout {
+    WIDE,
+    AUTO;
+
+    public static StagingLayout from(String value, StagingLayout defaultLayout) {
+        if (value == null || value.isBlank() || "null".equalsIgnoreCase(value)) {
+            return defaultLayout;
+        }
+        return StagingLayout.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -8,13 +8,11 @@
     import lombok.extern.slf4j.Slf4j;
     import ncpl.bms.reports.model.dto.AuditLogDTO;
     import org.springframework.beans.factory.annotation.Autowired;
-    import org.springframework.core.io.ClassPathResource;
     import org.springframework.jdbc.core.JdbcTemplate;
     import org.springframework.stereotype.Service;
 
     import java.awt.*;
     import java.io.ByteArrayOutputStream;
-    import java.io.IOException;
     import java.sql.ResultSet;
     import java.text.SimpleDateFormat;
     import java.util.Date;
@@ -26,6 +24,9 @@
         @Autowired
         private JdbcTemplate jdbcTemplate;
 
+        @Autowired
+        private PdfResources pdfResources;
+
         public List<AuditLogDTO> fetchAuditLogs(String startDate, String endDate) {
             String query = "SELECT [TIMESTAMP], [OPERATION], [TARGET], [SLOTNAME], [OLDVALUE], [VALUE], [USERNAME] " +
                     "FROM [JCIHistorianDB].[dbo].[SynGene_AuditHistory] " +
@@ -108,7 +109,7 @@
                 Document document = new Document(PageSize.A4.rotate(), 36, 36, 160, 50);
                 PdfWriter writer = PdfWriter.getInstance(document, out);
                 writer.setPageEvent(new PdfPageEventHelper() {
-                    Image logo = null;
+                    Image logo = pdfResources.logo();
                     Font titleFont = new Font(Font.HELVETICA, 16, Font.BOLD);
                     Font dateFont = new Font(Font.HELVETICA, 11);
                     Font footerFont = new Font(Font.HELVETICA, 9);
@@ -125,16 +126,8 @@
                             PdfPCell logoCell = new PdfPCell();
                             logoCell.setBorder(Rectangle.NO_BORDER);
 
-                            if (logo == null) {
-                                try {
-                                    logo = Image.getInstance(new ClassPathResource("static/images/logo.png").getURL());
-                                    logo.scaleToFit(100, 50);
-                                } catch (IOException e) {
-                                    log.error("Error loading logo image", e);
-                                }
-                            }
-
                             if (logo != null) {
+                                logo.scaleToFit(100, 50);
                                 logo.setAlignment(Image.ALIGN_LEFT);
                                 logoCell.addElement(logo);
                             }
@@ -0,0 +1,60 @@
+package ncpl.bms.reports.service;
+
+import lombok.Getter;
+import ncpl.bms.reports.model.dao.ReportTemplate;
+import ncpl.bms.reports.model.dao.TemplateParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a report template with its parameters already parsed, as kept in the
+ * template cache. Report generation reads everything it needs about a template from here.
+ */
+@Getter
+public final class TemplateDescriptor {
+
+    private final Long id;
+    private final String name;
+    private final String reportGroup;
+    private final String additionalInfo;
+    private final List<ParameterDescriptor> parameters;
+    private final List<String> baseColumns;
+    private final Map<String, ParameterDescriptor> byBaseColumn;
+
+    private TemplateDescriptor(ReportTemplate template) {
+        this.id = template.getId();
+        this.name = template.getName();
+        this.reportGroup = template.getReport_group();
+        this.additionalInfo = template.getAdditionalInfo();
+
+        List<ParameterDescriptor> parsed = new ArrayList<>();
+        LinkedHashSet<String> columns = new LinkedHashSet<>();
+        Map<String, ParameterDescriptor> lookup = new HashMap<>();
+        List<TemplateParameter> structured = template.getStructuredParameters();
+        if (structured != null) {
+            for (TemplateParameter parameter : structured) {
+                ParameterDescriptor descriptor = ParameterDescriptor.of(parameter);
+                parsed.add(descriptor);
+                columns.add(descriptor.getBaseColumn());
+                lookup.put(descriptor.getBaseColumn(), descriptor);
+            }
+        }
+        this.parameters = Collections.unmodifiableList(parsed);
+        this.baseColumns = List.copyOf(columns);
+        this.byBaseColumn = Collections.unmodifiableMap(lookup);
+    }
+
+    public static TemplateDescriptor of(ReportTemplate template) {
+        return new TemplateDescriptor(template);
+    }
+
+    // Descriptor of the parameter behind a report column, null for columns not in the template
+    public ParameterDescriptor getParameter(String baseColumn) {
+        return byBaseColumn.get(baseColumn);
+    }
+}
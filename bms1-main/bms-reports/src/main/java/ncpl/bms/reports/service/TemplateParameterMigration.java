@@ -0,0 +1,91 @@
+package ncpl.bms.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import ncpl.bms.reports.db.ReportSchema;
+import ncpl.bms.reports.model.dao.ReportTemplate;
+import ncpl.bms.reports.model.dao.TemplateParameter;
+import ncpl.bms.reports.model.dao.TemplateParametersConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies template parameters from the legacy Java-serialized report_template.parameters column
+ * into parameters_json at startup. Runs in id order, a batch at a time, and never overwrites a
+ * row that already has JSON, so templates saved while it runs keep what was saved. A template
+ * whose strings do not round-trip exactly through the structured form is left on the legacy
+ * column. The legacy column is kept, and still written on save, for rollback.
+ */
+@Component
+@Slf4j
+public class TemplateParameterMigration implements CommandLineRunner {
+
+    private static final TemplateParametersConverter CONVERTER = new TemplateParametersConverter();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${report.template.migration.batch-size:200}")
+    private int batchSize;
+
+    @Override
+    public void run(String... args) {
+        addColumn();
+        migrate();
+    }
+
+    public void addColumn() {
+        ReportSchema.addColumn(jdbcTemplate, "report_template", "parameters_json", ReportSchema.longText(jdbcTemplate));
+    }
+
+    public int migrate() {
+        String select = "SELECT id, parameters FROM report_template " +
+                "WHERE id > ? AND parameters_json IS NULL AND parameters IS NOT NULL " +
+                "ORDER BY id OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+        long lastId = 0;
+        int migrated = 0;
+        int failed = 0;
+        int skipped = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(select, lastId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                long id = ((Number) row.get("id")).longValue();
+                lastId = id;
+                try {
+                    List<String> legacy = ReportTemplate.decodeLegacyParameters((byte[]) row.get("parameters"));
+                    List<String> lossy = legacy.stream().filter(p -> !TemplateParameter.roundTrips(p)).toList();
+                    if (!lossy.isEmpty()) {
+                        // Migrating would change what the API returns; the entity keeps reading the legacy column
+                        log.warn("Template {} left on legacy parameters, {} do not round-trip", id, lossy);
+                        skipped++;
+                        continue;
+                    }
+                    List<TemplateParameter> parameters = legacy.stream().map(TemplateParameter::parse).toList();
+                    updates.add(new Object[]{CONVERTER.convertToDatabaseColumn(parameters), id});
+                } catch (RuntimeException e) {
+                    // Left on the legacy column, where the entity can still read it
+                    log.error("Could not migrate parameters of template {}: {}", id, e.getMessage());
+                    failed++;
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE report_template SET parameters_json = ? WHERE id = ? AND parameters_json IS NULL", updates);
+                migrated += updates.size();
+            }
+        }
+        if (migrated > 0 || failed > 0 || skipped > 0) {
+            log.info("Migrated parameters of {} report templates to JSON, {} left on the legacy column, {} failed", migrated, skipped, failed);
+        }
+        return migrated;
+    }
+}
@@ -2,29 +2,31 @@ package ncpl.bms.reports.service;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
 import lombok.extern.slf4j.Slf4j;
-import ncpl.bms.reports.model.dao.ReportTemplate;
 import ncpl.bms.reports.model.dto.ReportDTO;
 import ncpl.bms.reports.util.DateConverter;
+import ncpl.bms.reports.util.PdfSpool;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.InputStream;
 import java.sql.PreparedStatement;
 import java.text.SimpleDateFormat;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 //--------------------COMPLETE FILE IS WRITTEN BY VISHAL----------------------//
 
 @Component
 @Slf4j
 public class WeeklySchedulingService {
+    private static final int FLUSH_ROWS = 50;
+
     @Autowired
     private ReportDataService reportDataService;
 
@@ -43,54 +45,70 @@ public class WeeklySchedulingService {
     @Autowired
     private DateConverter dateConverter;
 
-    private List<Map<String, Object>> reportDataList = null;
+    @Autowired
+    private PdfResources pdfResources;
+
+    @Autowired
+    private ScheduledReportExecutor scheduledReportExecutor;
+
+    // Row interval of the weekly PDF, e.g. 15m; empty prints every raw sample
+    @Value("${report.schedule.weekly-interval:}")
+    private String reportInterval;
+
 
     public void generatePdfWeeklySchedule(Long templateId, String fromDateTime, String toDate, String username,  String assignedTo, String assigned_approver) throws Exception {
-        reportDataList = reportDataService.generateReportData(templateId, fromDateTime, toDate);
+        ReportFrame frame = reportDataService.generateReportFrame(templateId, fromDateTime, toDate,
+                ReportGenerationMode.STAGING, reportDataService.resolveInterval(reportInterval));
 
         // Convert the date range to 'dd-MM-yyyy HH:mm:ss' format
         SimpleDateFormat dateTimeFormatter = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
         String formattedFromDateTime = dateTimeFormatter.format(new Date(Long.parseLong(fromDateTime)));
         String formattedToDateTime = dateTimeFormatter.format(new Date(Long.parseLong(toDate)));
 
-        Map<String, Map<String, Integer>> statistics = reportDataService.calculateStatistics(templateId, fromDateTime, toDate);
-        Document document = new Document(PageSize.A4.rotate());
+        Map<String, Map<String, Map<String, Object>>> statistics = reportDataService.calculateStatistics(frame);
+        try (PdfSpool spool = PdfSpool.create()) {
+            Document document = new Document(PageSize.A4.rotate());
 
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        PdfWriter writer = PdfWriter.getInstance(document, byteArrayOutputStream);
+            PdfWriter writer = PdfWriter.getInstance(document, spool.getOutputStream());
 
-        // Use TablePageEvent if required for header/footer
-        WeeklySchedulingService.TablePageEvent event = new WeeklySchedulingService.TablePageEvent(formattedFromDateTime, formattedToDateTime, username);
-        writer.setPageEvent(event);
+            // Use TablePageEvent if required for header/footer
+            WeeklySchedulingService.TablePageEvent event = new WeeklySchedulingService.TablePageEvent(formattedFromDateTime, formattedToDateTime, username, frame);
+            writer.setPageEvent(event);
 
-        document.open();
+            document.open();
 
-        Map<String, Object> stringObjectMap = reportDataList.get(0);
-        PdfPTable table = new PdfPTable(stringObjectMap.size());
-        table.setWidthPercentage(100f);
-        table.setSpacingBefore(5);
+            PdfPTable table = new PdfPTable(frame.columnCount() + 1);
+            table.setWidthPercentage(100f);
+            table.setSpacingBefore(5);
+            // Rows are flushed to the spool as they complete instead of holding the whole table until the end
+            table.setComplete(false);
 
-        PdfPCell cell = new PdfPCell();
-        addTableHeader(stringObjectMap, table, cell);
+            PdfPCell cell = new PdfPCell();
+            addTableHeader(frame, table, cell);
+
+            // Extract "From" and "To" values for each parameter
+            TemplateDescriptor template = templateService.getDescriptor(templateId);
+            double[][] columnRanges = new double[frame.columnCount()][];
+            for (int c = 0; c < frame.columnCount(); c++) {
+                ParameterDescriptor parameter = template.getParameter(frame.getColumns().get(c));
+                columnRanges[c] = parameter == null ? null : parameter.getRange();
+            }
 
-        // Extract "From" and "To" values for each parameter
-        Map<String, double[]> parameterRanges = extractParameterRanges(templateId);
+            ExportProgress progress = ExportProgress.current();
+            for (int row = 0; row < frame.rowCount(); row++) {
+                PdfPCell timeCell = new PdfPCell(new Phrase(Long.toString(frame.timestamp(row))));
+                timeCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+                table.addCell(timeCell);
 
-        for (Map<String, Object> map : reportDataList) {
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                String valueStr = String.valueOf(entry.getValue());
-                if (valueStr == null || valueStr.trim().isEmpty() || valueStr.equals("null")) {
-                    valueStr = "";
-                }
+                for (int c = 0; c < frame.columnCount(); c++) {
+                    String valueStr = frame.isNull(row, c) ? "" : frame.format(row, c);
 
-                PdfPCell valueCell = new PdfPCell(new Phrase(valueStr));
-                valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+                    PdfPCell valueCell = new PdfPCell(new Phrase(valueStr));
+                    valueCell.setHorizontalAlignment(Element.ALIGN_CENTER);
 
-                if (!valueStr.isEmpty()) {
-                    double value = Double.parseDouble(valueStr);
-                    String paramName = entry.getKey();
-                    double[] range = parameterRanges.get(paramName);
-                    if (range != null) {
+                    double[] range = columnRanges[c];
+                    if (range != null && !frame.isNull(row, c)) {
+                        double value = frame.value(row, c);
                         double fromValue = range[0];
                         double toValue = range[1];
                         if (value > toValue) {
@@ -99,82 +117,56 @@ public class WeeklySchedulingService {
                             valueCell.setBackgroundColor(CMYKColor.BLUE);
                         }
                     }
-                }
 
-                table.addCell(valueCell);
+                    table.addCell(valueCell);
+                }
+                if ((row + 1) % FLUSH_ROWS == 0) {
+                    document.add(table);
+                    // A report past report.schedule.job-timeout stops rendering here
+                    if (progress != null) {
+                        progress.checkCancelled();
+                    }
+                }
+            }
+            addStatisticsRow("Max", statistics, table);
+            addStatisticsRow("Min", statistics, table);
+            addStatisticsRow("Avg", statistics, table);
+            addStatisticsRow("StdDev", statistics, table);
+            addStatisticsRow("P95", statistics, table);
+            addStatisticsRow("P99", statistics, table);
+            table.setComplete(true);
+            document.add(table);
+            document.close();
+            // Create the PDF file name in the same format as before
+            String templateName = templateService.getDescriptor(templateId).getName().replaceAll("[^a-zA-Z0-9]", "_"); // Replace non-alphanumeric characters with underscores
+            String pdfFileName = templateName + "_" + formattedFromDateTime + "_TO_" + formattedToDateTime + ".pdf";
+            Date currentDate = new Date(Calendar.getInstance().getTimeInMillis());
+            long currentTimeMillis = currentDate.getTime();
+            String currentDateStr = Long.toString(currentTimeMillis);
+
+            //int chk = (assigned_approver == null) ? 0 : 1;
+            int chk = (assigned_approver == null || assigned_approver.trim().isEmpty()) ? 0 : 1;
+            // Insert the PDF into the database using JdbcTemplate
+            String sql = "INSERT INTO stored_reports_weekly (name, from_date, to_date, pdf_data, generated_by, generated_date, assigned_review, assigned_approver, is_approver_required) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            long pdfLength = spool.length();
+            try (InputStream pdfData = spool.openInputStream()) {
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql);
+                    ps.setString(1, pdfFileName);  // Set the formatted file name
+                    ps.setString(2, fromDateTime);
+                    ps.setString(3, toDate);
+                    ps.setBinaryStream(4, pdfData, pdfLength);
+                    ps.setString(5, username);
+                    ps.setString(6, currentDateStr);
+                    ps.setString(7, assignedTo);
+                    ps.setString(8, assigned_approver);
+                    log.info("APPROVER IS {}", assigned_approver);
+                    log.info("chk is {} " ,chk);
+                    ps.setBoolean(9, chk==1);
+                    return ps;
+                });
             }
         }
-        addStatisticsRow("Max", statistics, table);
-        addStatisticsRow("Min", statistics, table);
-        addStatisticsRow("Avg", statistics, table);
-        document.add(table);
-        document.close();
-        // Create the PDF file name in the same format as before
-        String templateName = templateService.getById(templateId).getName().replaceAll("[^a-zA-Z0-9]", "_"); // Replace non-alphanumeric characters with underscores
-        String pdfFileName = templateName + "_" + formattedFromDateTime + "_TO_" + formattedToDateTime + ".pdf";
-        Date currentDate = new Date(Calendar.getInstance().getTimeInMillis());
-        long currentTimeMillis = currentDate.getTime();
-        String currentDateStr = Long.toString(currentTimeMillis);
-
-        //int chk = (assigned_approver == null) ? 0 : 1;
-        int chk = (assigned_approver == null || assigned_approver.trim().isEmpty()) ? 0 : 1;
-        // Insert the PDF into the database using JdbcTemplate
-        String sql = "INSERT INTO stored_reports_weekly (name, from_date, to_date, pdf_data, generated_by, generated_date, assigned_review, assigned_approver, is_approver_required) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, pdfFileName);  // Set the formatted file name
-            ps.setString(2, fromDateTime);
-            ps.setString(3, toDate);
-            ps.setBytes(4, byteArrayOutputStream.toByteArray());
-            ps.setString(5, username);
-            ps.setString(6, currentDateStr);
-            ps.setString(7, assignedTo);
-            ps.setString(8, assigned_approver);
-            log.info("APPROVER IS {}", assigned_approver);
-            log.info("chk is {} " ,chk);
-            ps.setBoolean(9, chk==1);
-            return ps;
-        });
-    }
-
-    private Map<String, double[]> extractParameterRanges(Long templateId) {
-        ReportTemplate template = templateService.getById(templateId);
-        Map<String, double[]> parameterRanges = new HashMap<>();
-
-        for (String parameter : template.getParameters()) {
-            String cleanParameter = removeSuffix(parameter);
-            double fromValue = getFromValue(parameter);
-            double toValue = getToValue(parameter);
-            parameterRanges.put(cleanParameter, new double[]{fromValue, toValue});
-        }
-
-        return parameterRanges;
-    }
-
-    private String removeSuffix(String columnName) {
-        if (columnName.contains("_From_")) {
-            return columnName.substring(0, columnName.indexOf("_From_"));
-        }
-        return columnName;
-    }
-
-    private double getFromValue(String paramName) {
-        if (paramName.contains("_From_")) {
-            int fromIndex = paramName.lastIndexOf("_From_") + 6;
-            int toIndex = paramName.lastIndexOf("_To_");
-            String fromStr = paramName.substring(fromIndex, toIndex);
-            return Double.parseDouble(fromStr);
-        }
-        return Double.NEGATIVE_INFINITY;  // Default if no "From" found
-    }
-
-    private double getToValue(String paramName) {
-        if (paramName.contains("_To_")) {
-            int toIndex = paramName.lastIndexOf("_To_") + 4;
-            String toStr = paramName.substring(toIndex);
-            return Double.parseDouble(toStr);
-        }
-        return Double.POSITIVE_INFINITY;  // Default if no "To" found
     }
 
 
@@ -182,32 +174,48 @@ public class WeeklySchedulingService {
 
 
 
-    private void addStatisticsRow(String label, Map<String, Map<String, Integer>> statistics, PdfPTable table) {
+    private void addStatisticsRow(String label, Map<String, Map<String, Map<String, Object>>> statistics, PdfPTable table) {
+        // Only Max and Min happened at a particular time; it goes in a second row
+        boolean hasTimestamp = label.equalsIgnoreCase("Max") || label.equalsIgnoreCase("Min");
+
         PdfPCell labelCell = new PdfPCell(new Phrase(label));
         labelCell.setBackgroundColor(CMYKColor.YELLOW); // Set the background color to yellow
+        if (hasTimestamp) {
+            labelCell.setRowspan(2);
+        }
         table.addCell(labelCell);
 
         for (String parameter : statistics.keySet()) {
-            String value = String.valueOf(statistics.get(parameter).get(label.toLowerCase()));
-            PdfPCell valueCell = new PdfPCell(new Phrase(value != null ? value : ""));
+            Object value = statistics.get(parameter).get(label.toLowerCase()).get("value");
+            PdfPCell valueCell = new PdfPCell(new Phrase(value != null ? value.toString() : ""));
             valueCell.setBackgroundColor(CMYKColor.YELLOW); // Set the background color to yellow
             table.addCell(valueCell);
         }
+
+        if (hasTimestamp) {
+            for (String parameter : statistics.keySet()) {
+                Object timestamp = statistics.get(parameter).get(label.toLowerCase()).get("timestamp");
+                PdfPCell timeCell = new PdfPCell(new Phrase(timestamp != null ? timestamp.toString() : ""));
+                timeCell.setBackgroundColor(CMYKColor.YELLOW);
+                table.addCell(timeCell);
+            }
+        }
     }
 
 
 
-    private void addTableHeader(Map<String, Object> stringObjectMap, PdfPTable table, PdfPCell cell) {
+    private void addTableHeader(ReportFrame frame, PdfPTable table, PdfPCell cell) {
         cell.setBackgroundColor(CMYKColor.GRAY);
         cell.setPadding(5);
         cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        Font font = FontFactory.getFont(FontFactory.HELVETICA);
-        font.setColor(CMYKColor.WHITE);
+        Font font = pdfResources.font(false, 12, CMYKColor.WHITE);
 
         table.getDefaultCell().setHorizontalAlignment(Element.ALIGN_CENTER);
         table.getDefaultCell().setVerticalAlignment(Element.ALIGN_CENTER);
-        for (Map.Entry<String,Object> entry : stringObjectMap.entrySet()) {
-            cell.setPhrase(new Phrase(entry.getKey(), font));
+        cell.setPhrase(new Phrase("timestamp", font));
+        table.addCell(cell);
+        for (String column : frame.getColumns()) {
+            cell.setPhrase(new Phrase(column, font));
             table.addCell(cell);
         }
     }
@@ -218,19 +226,20 @@ public class WeeklySchedulingService {
         private final String fromDateTime;
         private final String toDateTime;
         private final String username;
+        private final ReportFrame frame;
 
 
-        public TablePageEvent(String fromDateTime, String toDateTime, String username) {
+        public TablePageEvent(String fromDateTime, String toDateTime, String username, ReportFrame frame) {
             this.fromDateTime = fromDateTime;
             this.toDateTime = toDateTime;
             this.username = username;
+            this.frame = frame;
         }
 
 
         public void onStartPage(PdfWriter writer, Document document) {
 
-            Font fontTitle = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
-            fontTitle.setSize(13);
+            Font fontTitle = pdfResources.boldFont(13);
             PdfPCell cell = new PdfPCell();
 
             // Create Table Cells for table header
@@ -245,12 +254,7 @@ public class WeeklySchedulingService {
             PdfPCell cell1 = new PdfPCell(new Paragraph("Cell 1"));
             int noBorder = Rectangle.NO_BORDER;
             cell1.setBorder(noBorder);
-            Image image = null;
-            try {
-                image = Image.getInstance(new ClassPathResource("static/images/logo.png").getURL());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            Image image = pdfResources.logo();
             cell1.setImage(image);
             PdfPCell cell2 = new PdfPCell(new Paragraph(""));
             cell2.setBorder(noBorder);
@@ -297,12 +301,10 @@ public class WeeklySchedulingService {
 
             if(writer.getCurrentPageNumber() > 1) {
 
-                Map<String, Object> stringObjectMap = reportDataList.get(0);
-
-                PdfPTable table = new PdfPTable(stringObjectMap.size());
+                PdfPTable table = new PdfPTable(frame.columnCount() + 1);
                 table.setWidthPercentage(100f);
                 table.setSpacingBefore(5);
-                addTableHeader(stringObjectMap, table, cell);
+                addTableHeader(frame, table, cell);
                 document.add(table);
             }
 
@@ -342,8 +344,7 @@ public class WeeklySchedulingService {
             float[] columnWidths = {50f, 50f};
             footerTable.setWidths(columnWidths);
 
-            Font fontTiltle = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
-            fontTiltle.setSize(13);
+            Font fontTiltle = pdfResources.boldFont(13);
 
             LocalDateTime currentDate = LocalDateTime.now();
 //    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -384,6 +385,9 @@ public class WeeklySchedulingService {
         String sql = "SELECT IdOfReport, Name, assigned_review, isApproverRequired, assignedApprover, TimeOfReport, dayOfReport FROM weekly_scheduled_reports WHERE TimeOfReport = ? AND dayOfReport = ?";
         List<Map<String, Object>> scheduledReports = jdbcTemplate.queryForList(sql, currentHour, currentDay.toString());
 
+        // Due reports cover the same window, so each point is fetched once for all of them
+        PointSeriesBatch batch = scheduledReportExecutor.newBatch();
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
         for (Map<String, Object> report : scheduledReports) {
             Integer reportIdInteger = (Integer) report.get("IdOfReport");
             Long reportId = reportIdInteger.longValue(); // Convert Integer to Long if needed
@@ -403,13 +407,22 @@ public class WeeklySchedulingService {
             log.info("Weekly schedule started for ReportId:{}, Report: {}, AssignedTo: {}, AssignedApprover: {}, FromDate: {}, ToDate: {}",
                     reportId, reportName, assignedTo, assignedApprover, fromDate, toDate);
 
-            // Generate the PDF for this report
-            try {
-                generatePdfWeeklySchedule(reportId, fromDate, toDate, "Automatic", assignedTo, assignedApprover);
-            } catch (Exception e) {
-                log.error("Failed to generate report for IdOfReport: {}", reportId, e);
-            }
+            // Generate the PDF for this report on the scheduled report pool
+            jobs.add(scheduledReportExecutor.submit("weekly", reportId, batch,
+                    () -> generatePdfWeeklySchedule(reportId, fromDate, toDate, "Automatic", assignedTo, assignedApprover)));
         }
+        scheduledReportExecutor.whenAllDone("weekly", jobs, batch);
+    }
+
+    // One report fired by ReportScheduler; the window ends at the scheduled time, as it does for the hourly cron
+    public CompletableFuture<Void> submitScheduledReport(Long reportId, String assignedTo, String assignedApprover,
+                                                         ZonedDateTime scheduledAt, PointSeriesBatch batch) {
+        String fromDate = Long.toString(scheduledAt.minusDays(7).minusMonths(16).toInstant().toEpochMilli());
+        String toDate = Long.toString(scheduledAt.minusMonths(16).toInstant().toEpochMilli());
+        log.info("Weekly schedule started for ReportId:{}, ScheduledAt: {}, AssignedTo: {}, AssignedApprover: {}, FromDate: {}, ToDate: {}",
+                reportId, scheduledAt, assignedTo, assignedApprover, fromDate, toDate);
+        return scheduledReportExecutor.submit("weekly", reportId, batch,
+                () -> generatePdfWeeklySchedule(reportId, fromDate, toDate, "Automatic", assignedTo, assignedApprover));
     }
 
 
@@ -483,8 +496,7 @@ public class WeeklySchedulingService {
         PdfPTable footerTable = new PdfPTable(1);
         footerTable.setWidthPercentage(100);
 
-        Font fontTiltle = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
-        fontTiltle.setSize(13);
+        Font fontTiltle = pdfResources.boldFont(13);
 
         // For PDF: using the formatter to show in 'yyyy-MM-dd' format
         LocalDate currentDate = LocalDate.now();
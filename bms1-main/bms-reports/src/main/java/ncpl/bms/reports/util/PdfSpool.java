@@ -0,0 +1,61 @@
+package ncpl.bms.reports.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temp-file buffer for a rendered PDF. Pages are written to disk as the document is built and
+ * the finished file is handed to JDBC with setBinaryStream, so the report is never held as a
+ * byte[] on the heap. The file is deleted on close.
+ */
+@Slf4j
+public class PdfSpool implements Closeable {
+
+    private final Path file;
+    private final OutputStream outputStream;
+
+    private PdfSpool(Path file) throws IOException {
+        this.file = file;
+        this.outputStream = new BufferedOutputStream(Files.newOutputStream(file));
+    }
+
+    public static PdfSpool create() throws IOException {
+        return new PdfSpool(Files.createTempFile("report-", ".pdf"));
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public long length() throws IOException {
+        outputStream.flush();
+        return Files.size(file);
+    }
+
+    public InputStream openInputStream() throws IOException {
+        outputStream.flush();
+        return new BufferedInputStream(Files.newInputStream(file));
+    }
+
+    @Override
+    public void close() {
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            log.debug("Closing PDF spool {} failed", file, e);
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete PDF spool file {}", file, e);
+        }
+    }
+}
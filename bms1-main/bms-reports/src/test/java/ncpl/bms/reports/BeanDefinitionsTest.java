@@ -0,0 +1,28 @@
+package ncpl.bms.reports;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.ConfigurationClassPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Registers the application's bean definitions the way Spring Boot does, without creating any
+ * bean, so clashing bean names fail here instead of only at startup against a real database.
+ */
+class BeanDefinitionsTest {
+
+    @Test
+    void beanNamesDoNotClash() {
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        // Spring Boot's default; a duplicate name throws BeanDefinitionOverrideException
+        registry.setAllowBeanDefinitionOverriding(false);
+        new AnnotatedBeanDefinitionReader(registry).register(BmsReportsApplication.class);
+        new ConfigurationClassPostProcessor().postProcessBeanDefinitionRegistry(registry);
+
+        assertTrue(registry.containsBeanDefinition("scheduledReportExecutor"));
+        assertTrue(registry.containsBeanDefinition("scheduledReportPool"));
+        assertTrue(registry.containsBeanDefinition("exportJobExecutor"));
+    }
+}
@@ -0,0 +1,26 @@
+package ncpl.bms.reports;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Shared H2 fixture for the JDBC tests. Tables owned by the report service are created by the
+ * services' own createTables(), so the tests run the production DDL; only tables owned by the
+ * historian or by JPA are created here.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    // A fresh in-memory database per call; VALUE is a column of every point table
+    public static JdbcTemplate create(String name) {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE"));
+    }
+
+    // A historian point table, as the SYNGENE_ tables are laid out
+    public static void createPointTable(JdbcTemplate jdbcTemplate, String table) {
+        jdbcTemplate.execute("CREATE TABLE " + table + " (value INT, timestamp TIMESTAMP)");
+    }
+}
@@ -0,0 +1,36 @@
+package ncpl.bms.reports.db.info;
+
+import ncpl.bms.reports.service.ReportMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class SchemaCatalogTest {
+
+    // While the bootstrap reads the database, requests get the seeded snapshot instead of waiting on it
+    @Test
+    void seededCatalogServesWithoutQueryingTheDatabase() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SchemaCatalog catalog = new SchemaCatalog();
+        ReflectionTestUtils.setField(catalog, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(catalog, "reportMetrics", new ReportMetrics());
+        ReflectionTestUtils.setField(catalog, "tablePrefix", "SYNGENE_");
+
+        catalog.seed(List.of("SYNGENE_AHU2_From_0_To_50", "SYNGENE_AHU1", "table_info"));
+
+        assertEquals(List.of("SYNGENE_AHU1", "SYNGENE_AHU2"), catalog.getPoints());
+        assertNull(catalog.getTable("report_data"));
+        assertTrue(catalog.getTables().isEmpty());
+        assertFalse(catalog.isLoaded());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,29 @@
+package ncpl.bms.reports.db.info;
+
+import ncpl.bms.reports.TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TableInfoServiceTest {
+
+    @Test
+    void syncAppliesOnlyTheDifference() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create("table_info");
+        jdbcTemplate.execute("CREATE TABLE table_info (table_name VARCHAR(255) PRIMARY KEY)");
+        jdbcTemplate.update("INSERT INTO table_info (table_name) VALUES ('SYNGENE_AHU1'), ('SYNGENE_OLD')");
+
+        TableInfoService service = new TableInfoService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+
+        // SYNGENE_OLD was dropped, SYNGENE_AHU2 is new; the case of existing names may differ
+        assertEquals(2, service.syncTableInfo(List.of("syngene_ahu1", "SYNGENE_AHU2")));
+        assertEquals(List.of("SYNGENE_AHU1", "SYNGENE_AHU2"),
+                jdbcTemplate.queryForList("SELECT table_name FROM table_info ORDER BY table_name", String.class));
+        assertEquals(0, service.syncTableInfo(List.of("SYNGENE_AHU1", "SYNGENE_AHU2")));
+    }
+}
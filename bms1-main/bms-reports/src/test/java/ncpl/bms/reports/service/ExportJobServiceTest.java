@@ -0,0 +1,123 @@
+package ncpl.bms.reports.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExportJobServiceTest {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void queuesRejectsAndCancelsJobs() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PdfService pdfService = mock(PdfService.class);
+        when(pdfService.generatePdf(eq(1L), anyString(), anyString(), anyString(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return 42L;
+                });
+        ExportJobService service = service(pdfService);
+
+        ExportJob running = submit(service, 1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ExportJob queued = submit(service, 1L);
+        assertThrows(RejectedExecutionException.class, () -> submit(service, 1L));
+
+        // The queued job never reaches a worker
+        assertEquals(ExportJob.Status.CANCELLED, service.cancel(queued.getId()).getStatus());
+        assertEquals(0, executor.getQueue().size());
+
+        release.countDown();
+        awaitFinished(running);
+        assertEquals(ExportJob.Status.DONE, running.getStatus());
+        assertEquals(42L, running.getReportId());
+        assertEquals("v1/reports/42", running.getReportLink());
+        assertEquals(100, running.getPercent());
+    }
+
+    @Test
+    void cancelStopsRunningJob() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        PdfService pdfService = mock(PdfService.class);
+        when(pdfService.generatePdf(eq(1L), anyString(), anyString(), anyString(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    // Stands in for a fetch loop checking the bound progress between rows
+                    ExportProgress progress = ExportProgress.current();
+                    assertNotNull(progress);
+                    started.countDown();
+                    while (true) {
+                        progress.checkCancelled();
+                        Thread.sleep(5);
+                    }
+                });
+        ExportJobService service = service(pdfService);
+
+        ExportJob job = submit(service, 1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        service.cancel(job.getId());
+        awaitFinished(job);
+        assertEquals(ExportJob.Status.CANCELLED, job.getStatus());
+        assertTrue(job.getProgress().isCancelled());
+        assertThrows(CancellationException.class, () -> job.getProgress().checkCancelled());
+    }
+
+    @Test
+    void percentCombinesFetchedRowsAndRenderedPages() {
+        ExportProgress progress = new ExportProgress();
+        progress.addExpectedRows(1000);
+        progress.addRowsFetched(500);
+        assertEquals(35, progress.getPercent());
+
+        progress.expectPages(10);
+        progress.pageRendered(5);
+        assertEquals(85, progress.getPercent());
+    }
+
+    private ExportJobService service(PdfService pdfService) {
+        ExportJobService service = new ExportJobService();
+        ReflectionTestUtils.setField(service, "pdfService", pdfService);
+        ReflectionTestUtils.setField(service, "reportMetrics", new ReportMetrics());
+        ReflectionTestUtils.setField(service, "exportJobExecutor", executor);
+        ReflectionTestUtils.setField(service, "retention", Duration.ofHours(1));
+        return service;
+    }
+
+    private ExportJob submit(ExportJobService service, Long templateId) {
+        return service.submit(templateId, "0", "1000", "operator", "reviewer", null,
+                ReportGenerationMode.STAGING, null, DownsampleMode.AVG);
+    }
+
+    private void awaitFinished(ExportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.getStatus().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PointStatisticsServiceTest {
+
+    private static final long BASE_TIME = Timestamp.valueOf("2024-03-01 00:00:00").getTime();
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 1440 * MINUTE;
+
+    @Test
+    void catalogsDailyCountsAndEstimatesRanges() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create("point_stats");
+        TestDatabase.createPointTable(jdbcTemplate, "syngene_ahu1");
+
+        // Two days of 10-minute samples, every tenth one null
+        for (int i = 0; i < 2 * 144; i++) {
+            jdbcTemplate.update("INSERT INTO syngene_ahu1 (value, timestamp) VALUES (?, ?)",
+                    i % 10 == 0 ? null : i, new Timestamp(BASE_TIME + i * 10 * MINUTE));
+        }
+
+        PointStatisticsService service = new PointStatisticsService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "reportMetrics", new ReportMetrics());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        service.createTables();
+
+        List<String> points = List.of("syngene_ahu1");
+        assertNull(service.estimateRows(points, BASE_TIME, BASE_TIME + DAY));
+
+        // First refresh covers the first day and a half; the second one picks up the rest
+        assertEquals(2, service.refreshPoint("syngene_ahu1", BASE_TIME + DAY + DAY / 2));
+        assertEquals(1, service.refreshPoint("syngene_ahu1", BASE_TIME + 2 * DAY));
+
+        PointStatistics stats = service.get("syngene_ahu1");
+        assertEquals(288, stats.getRowCount());
+        assertEquals(29, stats.getNullCount());
+        assertEquals(10 * MINUTE, stats.getTypicalIntervalMs());
+        assertEquals(BASE_TIME + 287 * 10 * MINUTE, stats.getLastTimestamp());
+
+        assertArrayEquals(new long[]{144}, service.estimateRows(points, BASE_TIME, BASE_TIME + DAY));
+        assertArrayEquals(new long[]{72}, service.estimateRows(points, BASE_TIME + DAY / 2, BASE_TIME + DAY));
+        assertNull(service.estimateRows(points, BASE_TIME, BASE_TIME + 3 * DAY));
+    }
+}
@@ -0,0 +1,78 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportClusterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long SCHEDULED_AT = NOW - 60_000L;
+
+    private ReportCluster node(JdbcTemplate jdbcTemplate, String nodeId) {
+        ReportCluster cluster = new ReportCluster();
+        ReflectionTestUtils.setField(cluster, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(cluster, "reportMetrics", new ReportMetrics());
+        ReflectionTestUtils.setField(cluster, "nodeId", nodeId);
+        ReflectionTestUtils.setField(cluster, "nodeTimeout", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(cluster, "lease", Duration.ofMinutes(2));
+        return cluster;
+    }
+
+    // Two instances sharing one database, as two JVMs would
+    @Test
+    void runsAreShardedClaimedOnceAndTakenOverFromADeadNode() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create("report_cluster");
+
+        ReportCluster a = node(jdbcTemplate, "node-a");
+        ReportCluster b = node(jdbcTemplate, "node-b");
+        a.createTables();
+        a.heartbeat(NOW);
+        b.heartbeat(NOW);
+        a.heartbeat(NOW);
+        assertEquals(List.of("node-a", "node-b"), a.getLiveNodes());
+        // On a fresh database the first heartbeat already finds the run log it renews leases in
+        assertFalse(((ReportMetrics) ReflectionTestUtils.getField(a, "reportMetrics")).snapshot().containsKey("cluster.heartbeat.failures"));
+
+        int ownedByA = 0;
+        for (int reportId = 0; reportId < 100; reportId++) {
+            String key = "daily:" + reportId + ":" + SCHEDULED_AT;
+            assertNotEquals(a.isPreferredOwner(key), b.isPreferredOwner(key));
+            ownedByA += a.isPreferredOwner(key) ? 1 : 0;
+        }
+        assertTrue(ownedByA > 20 && ownedByA < 80);
+
+        assertTrue(a.claim(ScheduleKind.DAILY, 1, SCHEDULED_AT, NOW));
+        assertFalse(b.claim(ScheduleKind.DAILY, 1, SCHEDULED_AT, NOW));
+        assertTrue(a.claim(ScheduleKind.DAILY, 2, SCHEDULED_AT, NOW));
+        a.complete(ScheduleKind.DAILY, 2, SCHEDULED_AT);
+
+        // While node-a heartbeats its lease is renewed
+        long later = NOW + Duration.ofMinutes(3).toMillis();
+        a.heartbeat(later - 10_000);
+        assertTrue(b.takeOverExpired(later).isEmpty());
+
+        // node-a stops; its unfinished run is taken over once, the completed one is left alone
+        long muchLater = later + Duration.ofMinutes(3).toMillis();
+        b.heartbeat(muchLater);
+        assertEquals(List.of("node-b"), b.getLiveNodes());
+        assertTrue(b.isPreferredOwner("daily:1:" + SCHEDULED_AT));
+
+        List<ReportCluster.LeasedRun> taken = b.takeOverExpired(muchLater);
+        assertEquals(1, taken.size());
+        assertEquals(1, taken.get(0).getReportId());
+        assertEquals("node-a", taken.get(0).getPreviousOwner());
+        assertTrue(a.takeOverExpired(muchLater).isEmpty());
+        assertEquals("node-b", jdbcTemplate.queryForObject(
+                "SELECT owner FROM report_schedule_run WHERE report_id = 1", String.class));
+    }
+}
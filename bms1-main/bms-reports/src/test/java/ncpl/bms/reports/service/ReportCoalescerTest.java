@@ -0,0 +1,109 @@
+package ncpl.bms.reports.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReportCoalescerTest {
+
+    @Test
+    void concurrentIdenticalRequestsShareOneBuild() throws Exception {
+        ReportMetrics metrics = new ReportMetrics();
+        ReportCoalescer coalescer = coalescer(metrics, Duration.ofMinutes(1));
+        List<Object> key = ReportCoalescer.frameKey(1L, "0", "1000", ReportGenerationMode.STAGING, null, DownsampleMode.AVG);
+
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ReportFrame>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> coalescer.frame(key, () -> {
+                    builds.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new ReportFrame(List.of("syngene_ahu1"), 0);
+                })));
+            }
+            // Let every caller find the flight before the leader finishes
+            long deadline = System.currentTimeMillis() + 5000;
+            while (metrics.snapshot().getOrDefault("coalesce.frame.joined", 0L) < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            ReportFrame first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<ReportFrame> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, builds.get());
+
+        // A repeat within the TTL is served from the recent results
+        assertSame(coalescer.frame(key, () -> new ReportFrame(List.of(), 0)),
+                coalescer.frame(key, () -> new ReportFrame(List.of(), 0)));
+        assertEquals(1, builds.get());
+        assertEquals(2L, metrics.snapshot().get("coalesce.frame.hits"));
+
+        // Other options are another report
+        List<Object> hourly = ReportCoalescer.frameKey(1L, "0", "1000", ReportGenerationMode.STAGING, Duration.ofHours(1), DownsampleMode.AVG);
+        coalescer.frame(hourly, () -> {
+            builds.incrementAndGet();
+            return new ReportFrame(List.of(), 0);
+        });
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void cancelledLeaderDoesNotFailWaitingRequests() throws Exception {
+        ReportCoalescer coalescer = coalescer(new ReportMetrics(), Duration.ZERO);
+        List<Object> key = List.of(7L);
+
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch cancel = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> leader = pool.submit(() -> coalescer.storedReport(key, () -> {
+                leading.countDown();
+                cancel.await(5, TimeUnit.SECONDS);
+                throw new CancellationException("Export cancelled");
+            }));
+            leading.await(5, TimeUnit.SECONDS);
+            Future<Long> follower = pool.submit(() -> coalescer.storedReport(key, () -> 42L));
+            Thread.sleep(50);
+            cancel.countDown();
+
+            assertEquals(42L, follower.get(5, TimeUnit.SECONDS));
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertEquals(CancellationException.class, failure.getCause().getClass());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private ReportCoalescer coalescer(ReportMetrics metrics, Duration ttl) {
+        ReportCoalescer coalescer = new ReportCoalescer();
+        ReflectionTestUtils.setField(coalescer, "reportMetrics", metrics);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "frameTtl", ttl);
+        ReflectionTestUtils.setField(coalescer, "reportTtl", ttl);
+        ReflectionTestUtils.setField(coalescer, "maxFrames", 8);
+        return coalescer;
+    }
+}
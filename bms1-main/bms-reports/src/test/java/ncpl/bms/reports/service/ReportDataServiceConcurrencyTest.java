@@ -0,0 +1,172 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.TestDatabase;
+import ncpl.bms.reports.db.info.TableInfoService;
+import ncpl.bms.reports.model.dao.ReportTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs many staging exports over overlapping ranges at the same time against an in-memory
+ * database and checks that every export sees exactly its own rows.
+ */
+class ReportDataServiceConcurrencyTest {
+
+    private static final int CONCURRENT_EXPORTS = 16;
+    private static final long BASE_TIME = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+    private static final long MINUTE = 60_000L;
+
+    private JdbcTemplate jdbcTemplate;
+    private ReportDataService reportDataService;
+    private ExecutorService fetchExecutor;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("reports");
+        TestDatabase.createPointTable(jdbcTemplate, "syngene_ahu1");
+        TestDatabase.createPointTable(jdbcTemplate, "syngene_ahu2");
+        for (int minute = 0; minute < 120; minute++) {
+            Timestamp time = new Timestamp(BASE_TIME + minute * MINUTE);
+            jdbcTemplate.update("INSERT INTO syngene_ahu1 (value, timestamp) VALUES (?, ?)", minute, time);
+            jdbcTemplate.update("INSERT INTO syngene_ahu2 (value, timestamp) VALUES (?, ?)", 1000 + minute, time);
+        }
+
+        // report_data as the catalog bootstrap creates it
+        TableInfoService tableInfoService = spy(new TableInfoService());
+        ReflectionTestUtils.setField(tableInfoService, "jdbcTemplate", jdbcTemplate);
+        tableInfoService.createTable("report_data", List.of("syngene_ahu1", "syngene_ahu2"));
+        tableInfoService.addRequestKeyColumn("report_data");
+        doReturn(List.of("syngene_ahu1", "syngene_ahu2")).when(tableInfoService).getTables();
+        doReturn(List.of("report_id", "request_key", "timestamp", "syngene_ahu1", "syngene_ahu2"))
+                .when(tableInfoService).getColumns("report_data");
+
+        ReportTemplate template = new ReportTemplate();
+        template.setId(1L);
+        template.setParameters(List.of("syngene_ahu1_From_0_To_50_Unit_C", "syngene_ahu2"));
+        ReportTemplateService templateService = mock(ReportTemplateService.class);
+        when(templateService.getById(1L)).thenReturn(template);
+        when(templateService.getDescriptor(1L)).thenReturn(TemplateDescriptor.of(template));
+
+        ReportMetrics reportMetrics = new ReportMetrics();
+
+        ReportFetchPlanner planner = new ReportFetchPlanner();
+        ReflectionTestUtils.setField(planner, "tableInfoService", tableInfoService);
+        ReflectionTestUtils.setField(planner, "templateService", templateService);
+        ReflectionTestUtils.setField(planner, "reportMetrics", reportMetrics);
+        ReflectionTestUtils.setField(planner, "pointStatistics", mock(PointStatisticsService.class));
+
+        fetchExecutor = Executors.newFixedThreadPool(4);
+        PointSeriesReader pointSeriesReader = new PointSeriesReader();
+        ReflectionTestUtils.setField(pointSeriesReader, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(pointSeriesReader, "reportFetchExecutor", fetchExecutor);
+        ReflectionTestUtils.setField(planner, "pointSeriesReader", pointSeriesReader);
+
+        ReportPivotEngine pivotEngine = new ReportPivotEngine();
+        ReflectionTestUtils.setField(pivotEngine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(pivotEngine, "pointSeriesReader", pointSeriesReader);
+        ReflectionTestUtils.setField(pivotEngine, "batchSize", 50);
+
+        reportDataService = new ReportDataService();
+        ReflectionTestUtils.setField(reportDataService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(reportDataService, "tableInfoService", tableInfoService);
+        ReflectionTestUtils.setField(reportDataService, "templateService", templateService);
+        ReflectionTestUtils.setField(reportDataService, "reportPivotEngine", pivotEngine);
+        ReflectionTestUtils.setField(reportDataService, "reportMetrics", reportMetrics);
+        ReflectionTestUtils.setField(reportDataService, "reportFetchPlanner", planner);
+        ReflectionTestUtils.setField(reportDataService, "pointSeriesReader", pointSeriesReader);
+        ReflectionTestUtils.setField(reportDataService, "pivotEngine", "batch");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentOverlappingExportsSeeOnlyTheirOwnRows() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_EXPORTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Map<String, Object>>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_EXPORTS; i++) {
+                // Ranges all overlap: export i covers minutes i .. i + 59
+                long from = BASE_TIME + i * MINUTE;
+                long to = from + 59 * MINUTE;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return reportDataService.generateReportData(1L, Long.toString(from), Long.toString(to));
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < CONCURRENT_EXPORTS; i++) {
+                List<Map<String, Object>> rows = results.get(i).get();
+                assertEquals(60, rows.size(), "export " + i);
+                for (int row = 0; row < rows.size(); row++) {
+                    int minute = i + row;
+                    assertEquals(BASE_TIME + minute * MINUTE, ((Number) rows.get(row).get("timestamp")).longValue());
+                    assertEquals(minute, ((Number) rows.get(row).get("syngene_ahu1")).intValue());
+                    assertEquals(1000 + minute, ((Number) rows.get(row).get("syngene_ahu2")).intValue());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sharedBatchJoinsTheStagedRowsFromOneFetchPerPoint() {
+        String from = Long.toString(BASE_TIME + 10 * MINUTE);
+        String to = Long.toString(BASE_TIME + 69 * MINUTE);
+        List<Map<String, Object>> staged = reportDataService.generateReportData(1L, from, to);
+
+        PointSeriesBatch batch = new PointSeriesBatch();
+        PointSeriesBatch previous = PointSeriesBatch.bind(batch);
+        try {
+            assertEquals(staged, reportDataService.generateReportData(1L, from, to));
+            assertEquals(staged, reportDataService.generateReportData(1L, from, to));
+        } finally {
+            PointSeriesBatch.restore(previous);
+        }
+        assertEquals(2, batch.size());
+    }
+
+    // Export jobs run the staging INSERTs and the staged read as statements they can cancel
+    @Test
+    void exportJobStagesTheSameRowsAndLeavesNothingBehindWhenCancelled() {
+        String from = Long.toString(BASE_TIME + 10 * MINUTE);
+        String to = Long.toString(BASE_TIME + 69 * MINUTE);
+        List<Map<String, Object>> staged = reportDataService.generateReportData(1L, from, to);
+
+        ExportProgress progress = new ExportProgress();
+        ExportProgress previous = ExportProgress.bind(progress);
+        try {
+            assertEquals(staged, reportDataService.generateReportData(1L, from, to));
+            progress.cancel();
+            assertThrows(CancellationException.class, () -> reportDataService.generateReportData(1L, from, to));
+        } finally {
+            ExportProgress.restore(previous);
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM report_data", Integer.class));
+    }
+}
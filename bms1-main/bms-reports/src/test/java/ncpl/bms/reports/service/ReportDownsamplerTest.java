@@ -0,0 +1,53 @@
+package ncpl.bms.reports.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportDownsamplerTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long ORIGIN = 1_700_000_000_000L;
+
+    // Two hours of one-minute samples with a single spike at minute 70
+    private ReportFrame minuteFrame() {
+        ReportFrame frame = new ReportFrame(List.of("syngene_ahu1"), 120);
+        for (int minute = 0; minute < 120; minute++) {
+            int row = frame.addRow(ORIGIN + minute * MINUTE);
+            frame.set(row, 0, minute == 70 ? 500 : minute % 10);
+        }
+        return frame;
+    }
+
+    @Test
+    void averageAndLastReduceEachBucket() {
+        ReportFrame average = ReportDownsampler.downsample(minuteFrame(), ORIGIN, 15 * MINUTE, DownsampleMode.AVG);
+        assertEquals(8, average.rowCount());
+        assertEquals(ORIGIN + 15 * MINUTE, average.timestamp(1));
+        // minutes 0..14: 0..9 then 0..4 -> 55/15
+        assertEquals(3, average.value(0, 0));
+
+        ReportFrame last = ReportDownsampler.downsample(minuteFrame(), ORIGIN, 15 * MINUTE, DownsampleMode.LAST);
+        assertEquals(4, last.value(0, 0));
+    }
+
+    @Test
+    void largestTriangleKeepsSpikeAndStatisticsStayRaw() {
+        ReportFrame raw = minuteFrame();
+        ReportFrame reduced = ReportDownsampler.downsample(raw, ORIGIN, 15 * MINUTE, DownsampleMode.LTTB);
+
+        boolean spikeKept = false;
+        for (int row = 0; row < reduced.rowCount(); row++) {
+            spikeKept |= reduced.value(row, 0) == 500;
+        }
+        assertTrue(spikeKept);
+        assertEquals(0, reduced.value(0, 0));
+
+        assertEquals(120, reduced.getStatistics(0).getCount());
+        assertEquals(500, reduced.getStatistics(0).getMax());
+        assertEquals(ORIGIN + 70 * MINUTE, reduced.getStatistics(0).getMaxTimestamp());
+    }
+}
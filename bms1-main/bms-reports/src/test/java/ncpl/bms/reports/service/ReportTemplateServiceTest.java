@@ -0,0 +1,47 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.model.dao.ReportTemplate;
+import ncpl.bms.reports.repository.ReportTemplateRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportTemplateServiceTest {
+
+    private ReportTemplate template(String... parameters) {
+        ReportTemplate template = new ReportTemplate();
+        template.setId(1L);
+        template.setParameters(List.of(parameters));
+        return template;
+    }
+
+    @Test
+    void descriptorLoadedAcrossAnUpdateIsNotCached() {
+        ReportTemplateRepository repository = mock(ReportTemplateRepository.class);
+        ReportTemplateService service = new ReportTemplateService();
+        ReflectionTestUtils.setField(service, "reportTemplateRepo", repository);
+        ReflectionTestUtils.setField(service, "reportMetrics", new ReportMetrics());
+        ReflectionTestUtils.setField(service, "cacheSize", 16);
+
+        ReportTemplate updated = template("SYNGENE_AHU1_From_0_To_80_Unit_C");
+        // The template is saved while the first reader is still loading the old version
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            service.deleteTemplatesByIds(List.of(2L));
+            return Optional.of(template("SYNGENE_AHU1_From_0_To_50_Unit_C"));
+        }).thenReturn(Optional.of(updated));
+
+        assertEquals(50, service.getDescriptor(1L).getParameter("SYNGENE_AHU1").getTo());
+        assertEquals(80, service.getDescriptor(1L).getParameter("SYNGENE_AHU1").getTo());
+        // The second load was cached
+        assertEquals(80, service.getDescriptor(1L).getParameter("SYNGENE_AHU1").getTo());
+        verify(repository, times(2)).findById(1L);
+    }
+}
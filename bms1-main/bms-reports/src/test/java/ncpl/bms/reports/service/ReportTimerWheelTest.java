@@ -0,0 +1,64 @@
+package ncpl.bms.reports.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportTimerWheelTest {
+
+    private static final ZonedDateTime MIDNIGHT = ZonedDateTime.of(2024, 3, 4, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private ScheduleEntry entry(ScheduleKind kind, long reportId, String cron, boolean flexible, int offset, ZonedDateTime from) {
+        ScheduleEntry entry = new ScheduleEntry(kind, reportId, "reviewer", null, cron, flexible, offset);
+        entry.setNextRun(entry.nextAfter(from));
+        return entry;
+    }
+
+    private long minute(ZonedDateTime time) {
+        return time.toEpochSecond() / 60;
+    }
+
+    @Test
+    void legacyColumnsTranslateToCron() {
+        assertEquals("0 0 9 * * *", ScheduleKind.DAILY.toCron("9", null));
+        assertEquals("0 30 14 * * MON", ScheduleKind.WEEKLY.toCron("14:30", "Monday"));
+        assertEquals("0 0 6 15 * *", ScheduleKind.MONTHLY.toCron("06", "15"));
+
+        // 2024-03-04 is a Monday
+        ScheduleEntry weekly = entry(ScheduleKind.WEEKLY, 1, "30 14 * * MON", false, 0, MIDNIGHT);
+        assertEquals(MIDNIGHT.withHour(14).withMinute(30), weekly.getNextRun());
+    }
+
+    @Test
+    void flexibleEntriesFireAfterTheirHourButKeepTheNominalTime() {
+        ScheduleEntry flexible = entry(ScheduleKind.DAILY, 7, ScheduleKind.DAILY.toCron("9", null), true, 17, MIDNIGHT);
+        ScheduleEntry exact = entry(ScheduleKind.DAILY, 8, "0 0 9 * * *", false, 17, MIDNIGHT);
+
+        assertEquals(MIDNIGHT.withHour(9), flexible.getNextRun());
+        assertEquals(MIDNIGHT.withHour(9).withMinute(17), flexible.getFireAt());
+        assertEquals(MIDNIGHT.withHour(9), exact.getFireAt());
+    }
+
+    @Test
+    void advanceReturnsOnlyEntriesWhoseMinuteHasCome() {
+        ReportTimerWheel wheel = new ReportTimerWheel(minute(MIDNIGHT));
+        // Same slot (minute 5), different hours
+        ScheduleEntry first = entry(ScheduleKind.DAILY, 1, "5 1 * * *", false, 0, MIDNIGHT);
+        ScheduleEntry later = entry(ScheduleKind.DAILY, 2, "5 3 * * *", false, 0, MIDNIGHT);
+        wheel.add(first);
+        wheel.add(later);
+
+        assertTrue(wheel.advance(minute(MIDNIGHT.withHour(1).withMinute(4))).isEmpty());
+        assertEquals(List.of(first), wheel.advance(minute(MIDNIGHT.withHour(1).withMinute(5))));
+        assertEquals(1, wheel.size());
+
+        // A pause of more than an hour still visits every slot once
+        assertEquals(List.of(later), wheel.advance(minute(MIDNIGHT.withHour(4).withMinute(30))));
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,93 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Rolls up three days of raw samples and checks that reports built from the hourly and daily
+ * buckets carry the same max/min/avg as the raw samples.
+ */
+class RollupServiceTest {
+
+    private static final long BASE_TIME = Timestamp.valueOf("2024-03-01 00:00:00").getTime();
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    private JdbcTemplate jdbcTemplate;
+    private RollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = TestDatabase.create("rollup");
+        TestDatabase.createPointTable(jdbcTemplate, "syngene_ahu1");
+
+        // A sample every 10 minutes for three days, with a missing value now and then
+        for (int i = 0; i < 3 * 24 * 6; i++) {
+            Integer value = i % 17 == 0 ? null : (i * 37) % 101 - 20;
+            jdbcTemplate.update("INSERT INTO syngene_ahu1 (value, timestamp) VALUES (?, ?)",
+                    value, new Timestamp(BASE_TIME + i * 600_000L));
+        }
+
+        rollupService = new RollupService();
+        ReflectionTestUtils.setField(rollupService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(rollupService, "reportMetrics", new ReportMetrics());
+        ReflectionTestUtils.setField(rollupService, "enabled", true);
+        ReflectionTestUtils.setField(rollupService, "lag", Duration.ZERO);
+        ReflectionTestUtils.setField(rollupService, "chunkDays", 1);
+        rollupService.createTables();
+        // Startup runs it against tables that already exist
+        rollupService.createTables();
+    }
+
+    @Test
+    void rollupStatisticsMatchRawSamples() {
+        rollupService.refreshPoint("syngene_ahu1", BASE_TIME + 3 * DAY);
+        // A second run has nothing new to roll up
+        assertEquals(0, rollupService.refreshPoint("syngene_ahu1", BASE_TIME + 3 * DAY));
+
+        long from = BASE_TIME + DAY;
+        long to = BASE_TIME + 3 * DAY;
+        PointSeriesReader reader = new PointSeriesReader();
+        ReflectionTestUtils.setField(reader, "jdbcTemplate", jdbcTemplate);
+        ColumnStatistics raw = ReportMergeJoin.join(List.of(reader.read("syngene_ahu1", new Timestamp(from), new Timestamp(to - 1))))
+                .getStatistics(0);
+
+        for (RollupResolution resolution : RollupResolution.values()) {
+            ReportFrame frame = rollupService.readFrame(List.of("syngene_ahu1"), resolution, from, to);
+            assertEquals((to - from) / resolution.getMillis(), frame.rowCount());
+
+            ColumnStatistics rolled = frame.getStatistics(0);
+            assertEquals(raw.getCount(), rolled.getCount());
+            assertEquals(raw.getMax(), rolled.getMax());
+            assertEquals(raw.getMaxTimestamp(), rolled.getMaxTimestamp());
+            assertEquals(raw.getMin(), rolled.getMin());
+            assertEquals(raw.getMinTimestamp(), rolled.getMinTimestamp());
+            assertEquals(raw.getAverage(), rolled.getAverage(), 1e-9);
+            assertEquals(raw.getStdDev(), rolled.getStdDev(), 1e-6);
+        }
+    }
+
+    @Test
+    void selectsCoarsestResolutionThatFits() {
+        rollupService.refreshPoint("syngene_ahu1", BASE_TIME + 2 * DAY);
+        List<String> points = List.of("syngene_ahu1");
+
+        assertEquals(RollupResolution.DAILY, rollupService.selectResolution(points, BASE_TIME, BASE_TIME + 2 * DAY, Duration.ofDays(1)));
+        assertEquals(RollupResolution.HOURLY, rollupService.selectResolution(points, BASE_TIME, BASE_TIME + 2 * DAY, Duration.ofHours(6)));
+        // Not aligned to a day, so only hourly buckets fit
+        assertEquals(RollupResolution.HOURLY, rollupService.selectResolution(points, BASE_TIME + HOUR, BASE_TIME + 2 * DAY, Duration.ofDays(1)));
+        // Finer than an hour, or past what has been rolled up: raw samples
+        assertNull(rollupService.selectResolution(points, BASE_TIME, BASE_TIME + 2 * DAY, Duration.ofMinutes(15)));
+        assertNull(rollupService.selectResolution(points, BASE_TIME, BASE_TIME + 3 * DAY, Duration.ofHours(1)));
+    }
+}
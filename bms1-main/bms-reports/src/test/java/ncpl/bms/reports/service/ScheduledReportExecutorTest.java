@@ -0,0 +1,82 @@
+package ncpl.bms.reports.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduledReportExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(3);
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private final ReportMetrics metrics = new ReportMetrics();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void runsTemplatesInParallelAndEachTemplateInOrder() throws Exception {
+        ScheduledReportExecutor executor = executor(Duration.ofMinutes(1));
+        CountDownLatch allRunning = new CountDownLatch(3);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
+        for (long template = 1; template <= 3; template++) {
+            long id = template;
+            jobs.add(executor.submit("daily", id, () -> {
+                allRunning.countDown();
+                // Only returns when the other templates are running at the same time
+                assertTrue(allRunning.await(5, TimeUnit.SECONDS));
+                order.add("daily-" + id);
+            }));
+        }
+        jobs.add(executor.submit("weekly", 1L, () -> order.add("weekly-1")));
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, order.size());
+        assertTrue(order.indexOf("daily-1") < order.indexOf("weekly-1"));
+        assertEquals(3L, metrics.snapshot().get("schedule.daily.runs"));
+        assertNull(metrics.snapshot().get("schedule.daily.failures"));
+    }
+
+    @Test
+    void timeoutCancelsTheRunningReport() throws Exception {
+        ScheduledReportExecutor executor = executor(Duration.ofMillis(100));
+        executor.submit("monthly", 5L, () -> {
+            ExportProgress progress = ExportProgress.current();
+            while (true) {
+                progress.checkCancelled();
+                Thread.sleep(10);
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1L, metrics.snapshot().get("schedule.monthly.timeouts"));
+    }
+
+    private ScheduledReportExecutor executor(Duration timeout) {
+        scheduler.initialize();
+        ScheduledReportExecutor executor = new ScheduledReportExecutor();
+        ReflectionTestUtils.setField(executor, "executor", pool);
+        ReflectionTestUtils.setField(executor, "taskScheduler", scheduler);
+        ReflectionTestUtils.setField(executor, "reportMetrics", metrics);
+        ReflectionTestUtils.setField(executor, "jobTimeout", timeout);
+        return executor;
+    }
+}
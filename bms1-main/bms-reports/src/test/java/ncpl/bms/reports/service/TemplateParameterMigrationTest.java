@@ -0,0 +1,103 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.TestDatabase;
+import ncpl.bms.reports.model.dao.ReportTemplate;
+import ncpl.bms.reports.model.dao.TemplateParameter;
+import ncpl.bms.reports.model.dao.TemplateParametersConverter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TemplateParameterMigrationTest {
+
+    private static final List<String> LEGACY = List.of("SYNGENE_AHU1_From_0_To_50.5_Unit_C", "SYNGENE_AHU2_Unit_Pa", "SYNGENE_AHU3");
+    private static final List<String> SYMBOL_UNITS = List.of("SYNGENE_AHU4_Unit_%RH", "SYNGENE_AHU5_From_-10_To_40_Unit_°C");
+    // "50.0" would come back as "50"
+    private static final List<String> LOSSY = List.of("SYNGENE_AHU6_From_0_To_50.0_Unit_C");
+
+    private JdbcTemplate jdbcTemplate;
+    private TemplateParameterMigration migration;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate = TestDatabase.create("templates");
+        // The JPA table as it was before parameters_json; the migration adds the column
+        jdbcTemplate.execute("CREATE TABLE report_template (id BIGINT PRIMARY KEY, name VARCHAR(255), parameters VARBINARY(65535))");
+        migration = new TemplateParameterMigration();
+        ReflectionTestUtils.setField(migration, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(migration, "batchSize", 2);
+        migration.addColumn();
+
+        // Three legacy rows, and one already saved in the new format
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO report_template (id, name, parameters) VALUES (?, ?, ?)", id, "t" + id, serialize(LEGACY));
+        }
+        jdbcTemplate.update("INSERT INTO report_template (id, name, parameters, parameters_json) VALUES (4, 't4', ?, '[]')", serialize(LEGACY));
+        jdbcTemplate.update("INSERT INTO report_template (id, name, parameters) VALUES (5, 't5', ?)", serialize(SYMBOL_UNITS));
+        jdbcTemplate.update("INSERT INTO report_template (id, name, parameters) VALUES (6, 't6', ?)", serialize(LOSSY));
+    }
+
+    private static byte[] serialize(List<String> parameters) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ArrayList<>(parameters));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void migratesLegacyRowsToJson() {
+        assertEquals(4, migration.migrate());
+        assertEquals(0, migration.migrate());
+
+        List<TemplateParameter> parameters = new TemplateParametersConverter().convertToEntityAttribute(
+                jdbcTemplate.queryForObject("SELECT parameters_json FROM report_template WHERE id = 2", String.class));
+        assertEquals(3, parameters.size());
+        assertEquals("SYNGENE_AHU1", parameters.get(0).getName());
+        assertEquals(50.5, parameters.get(0).getTo());
+        assertEquals("Pa", parameters.get(1).getUnit());
+        assertNull(parameters.get(2).getFrom());
+
+        // The API keeps seeing the strings it stored
+        ReportTemplate template = new ReportTemplate();
+        template.setStructuredParameters(parameters);
+        assertEquals(LEGACY, template.getParameters());
+
+        // Rows saved in the new format are not touched
+        assertEquals("[]", jdbcTemplate.queryForObject("SELECT parameters_json FROM report_template WHERE id = 4", String.class));
+    }
+
+    @Test
+    void keepsUnitsWithSymbolsAndLeavesLossyRowsOnTheLegacyColumn() {
+        migration.migrate();
+
+        List<TemplateParameter> parameters = new TemplateParametersConverter().convertToEntityAttribute(
+                jdbcTemplate.queryForObject("SELECT parameters_json FROM report_template WHERE id = 5", String.class));
+        assertEquals("%RH", parameters.get(0).getUnit());
+        assertEquals("°C", parameters.get(1).getUnit());
+        ReportTemplate migrated = new ReportTemplate();
+        migrated.setStructuredParameters(parameters);
+        assertEquals(SYMBOL_UNITS, migrated.getParameters());
+
+        assertNull(jdbcTemplate.queryForObject("SELECT parameters_json FROM report_template WHERE id = 6", String.class));
+
+        // Saving writes both columns; a lossy list is only kept on the legacy one
+        ReportTemplate saved = new ReportTemplate();
+        saved.setParameters(LEGACY);
+        assertEquals(LEGACY, ReportTemplate.decodeLegacyParameters((byte[]) ReflectionTestUtils.getField(saved, "parameters")));
+        assertEquals(3, ((List<?>) ReflectionTestUtils.getField(saved, "structuredParameters")).size());
+        saved.setParameters(LOSSY);
+        assertNull(ReflectionTestUtils.getField(saved, "structuredParameters"));
+        assertEquals(LOSSY, saved.getParameters());
+    }
+}
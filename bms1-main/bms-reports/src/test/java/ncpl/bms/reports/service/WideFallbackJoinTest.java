@@ -0,0 +1,77 @@
+package ncpl.bms.reports.service;
+
+import ncpl.bms.reports.TestDatabase;
+import ncpl.bms.reports.db.info.TableInfoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Builds the same range through wide report_data staging and through the in-memory join AUTO falls
+ * back to when report_data lacks a point's column, and checks both give identical rows.
+ */
+class WideFallbackJoinTest {
+
+    private static final long BASE_TIME = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+    private static final long MINUTE = 60_000L;
+
+    private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    @Test
+    void inMemoryJoinMatchesTheWideRows() {
+        JdbcTemplate jdbcTemplate = TestDatabase.create("wide_fallback");
+        TestDatabase.createPointTable(jdbcTemplate, "syngene_ahu1");
+        TestDatabase.createPointTable(jdbcTemplate, "syngene_ahu2");
+
+        // ahu1 every two minutes, ahu2 every minute with gaps in its values
+        for (int minute = 0; minute < 60; minute++) {
+            Timestamp time = new Timestamp(BASE_TIME + minute * MINUTE);
+            if (minute % 2 == 0) {
+                jdbcTemplate.update("INSERT INTO syngene_ahu1 (value, timestamp) VALUES (?, ?)", minute, time);
+            }
+            jdbcTemplate.update("INSERT INTO syngene_ahu2 (value, timestamp) VALUES (?, ?)", minute % 7 == 0 ? null : 100 + minute, time);
+        }
+
+        PointSeriesReader reader = new PointSeriesReader();
+        ReflectionTestUtils.setField(reader, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(reader, "reportFetchExecutor", fetchExecutor);
+
+        Timestamp from = new Timestamp(BASE_TIME);
+        Timestamp to = new Timestamp(BASE_TIME + 59 * MINUTE);
+        List<String> tables = List.of("syngene_ahu1", "syngene_ahu2");
+
+        TableInfoService tableInfoService = new TableInfoService();
+        ReflectionTestUtils.setField(tableInfoService, "jdbcTemplate", jdbcTemplate);
+        tableInfoService.createTable("report_data", tables);
+
+        ReportPivotEngine pivotEngine = new ReportPivotEngine();
+        ReflectionTestUtils.setField(pivotEngine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(pivotEngine, "pointSeriesReader", reader);
+        ReflectionTestUtils.setField(pivotEngine, "batchSize", 25);
+        pivotEngine.pivot("wide", "syngene_ahu2", List.of("syngene_ahu1"), from, to);
+        ReportFrame wide = jdbcTemplate.query("SELECT timestamp, syngene_ahu1, syngene_ahu2 FROM report_data " +
+                "WHERE request_key = 'wide' ORDER BY timestamp", rs -> {
+            return ReportFrame.fromResultSet(rs, tables);
+        });
+
+        List<PointSeries> series = reader.readAll(tables, from, to);
+        ReportFrame narrow = ReportPivotEngine.join(series, tables.indexOf("syngene_ahu2"));
+
+        assertEquals(60, narrow.rowCount());
+        assertEquals(wide.toRows(), narrow.toRows());
+        assertEquals(wide.getStatistics(1).getCount(), narrow.getStatistics(1).getCount());
+    }
+}